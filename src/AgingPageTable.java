@@ -1,4 +1,3 @@
-
 import java.util.Arrays;
 
 /**
@@ -7,55 +6,196 @@ import java.util.Arrays;
  * CS1550 Fall 2016
  * VM Simulator: Page Replacement Algorithms
  * 
+ * Victims are found without scanning every counter. A counter is ordered
+ *      first by the tick its page was last referenced at, so frames are kept in
+ *      one bucket per recent tick, and frames whose counter has aged to zero
+ *      are moved to a zero set. The victim is the lowest zero frame if any;
+ *      otherwise the least counter in the oldest non-empty bucket, which holds
+ *      at most one refresh period's worth of frames.
  */
 
-public class AgingPageTable {
-    AgingPageFrame[] frames;
-    private int[] counters;
+public class AgingPageTable implements PageTable {
+    /**
+     * Counter width of the classic 8 bit aging counter plus its reference bit (| 256).
+     */
+    public static final int DEFAULT_COUNTER_BITS = 9;
+    
+    FrameStore frames;
+    FrameIndex index;
+    private long[] counters;        // unsigned, counterBits wide
+    private long[] normalizedAt;    // tick each counter was last shifted up to
+    private int counterBits;
     private int refresh;
     private int clock;
+    private long ticks;
+    
+    // frames by the tick they were last referenced at (ring of counterBits doubly linked lists)
+    private long[] lastReferenced;  // -1 if never referenced
+    private int[] bucketHeads;
+    private int[] nextInBucket, prevInBucket;
+    private IndexedMaxHeap zeroFrames;  // all keyed 0, so the lowest frame comes out first
     
     private int activeFrames;
-    private int pageFaults;
-    private int diskWrites;
+    private long pageFaults;
+    private long diskWrites;
+    private PageEventListener listener;
     
     public AgingPageTable(int numFrames, int refresh) {
-        frames = new AgingPageFrame[numFrames];
-        for (int i=0; i < numFrames; i++) {
-            frames[i] = new AgingPageFrame();
+        this(numFrames, refresh, DEFAULT_COUNTER_BITS);
+    }
+    
+    /**
+     * @param numFrames The number of page frames in RAM.
+     * @param refresh The number of references between counter shifts.
+     * @param counterBits The counter width, including the reference bit (1 to 64).
+     */
+    public AgingPageTable(int numFrames, int refresh, int counterBits) {
+        this(numFrames, refresh, counterBits, FrameStore.HEAP);
+    }
+    
+    /**
+     * @param numFrames The number of page frames in RAM.
+     * @param refresh The number of references between counter shifts.
+     * @param counterBits The counter width, including the reference bit (1 to 64).
+     * @param backend Where the frame store keeps its columns (see FrameStore.create).
+     */
+    public AgingPageTable(int numFrames, int refresh, int counterBits, String backend) {
+        if (counterBits < 1 || counterBits > Long.SIZE) {
+            throw new IllegalArgumentException("Counter width must be between 1 and 64 bits");
         }
+        frames = FrameStore.create(numFrames, backend);
+        index = new FrameIndex(numFrames);
         
         
-        this.counters = new int[numFrames];  // hold counter for each frame
+        this.counters = new long[numFrames];  // hold counter for each frame
+        this.normalizedAt = new long[numFrames];
+        this.counterBits = counterBits;
         
         this.refresh = refresh;     // refresh rate (clock cycles)
         this.clock = 0;     // zero-based countdown
+        this.ticks = 0;     // number of times the counters have aged
+        
+        this.lastReferenced = new long[numFrames];
+        Arrays.fill(lastReferenced, -1);
+        this.bucketHeads = new int[counterBits];
+        Arrays.fill(bucketHeads, -1);
+        this.nextInBucket = new int[numFrames];
+        this.prevInBucket = new int[numFrames];
+        this.zeroFrames = new IndexedMaxHeap(numFrames);
         
         this.activeFrames = 0;
         this.pageFaults = 0;
         this.diskWrites = 0;
     }
     
-    public int getNumPageFaults() {
+    @Override
+    public long getNumPageFaults() {
         return this.pageFaults;
     }
-    public int getNumWritesToDisk() {
+    @Override
+    public long getNumWritesToDisk() {
         return this.diskWrites;
     }
+    @Override
+    public void setPageEventListener(PageEventListener listener) {
+        this.listener = listener;
+    }
     
     /**
      * Counts down from the refresh rate to zero. At zero, the "current" bit in
      *      in the counter gets shifted to the right, filling up the counter from
      *      most significant bit to least significant bit.
+     * 
+     *      The shift itself is deferred: each counter remembers the tick it was
+     *      last brought up to date at and catches up when next read (see counter).
+     *      Frames last referenced counterBits ticks ago have now aged to zero.
      */
     private void countdown() {
         clock = (clock+1) % refresh;
         
         if (clock == 0) {
-            // shift right
-            for (int i=0; i < counters.length; i++) {
-                counters[i] = counters[i] >> 1;
+            ticks++;
+            
+            int bucket = (int) (ticks % counterBits);
+            for (int i = bucketHeads[bucket]; i != -1; i = nextInBucket[i]) {
+                zeroFrames.put(i, 0);
             }
+            bucketHeads[bucket] = -1;
+        }
+    }
+    
+    
+    /**
+     * Applies every shift the given counter has missed since it was last
+     *      touched and returns its current value.
+     * 
+     * @param frame The frame whose counter to bring up to date.
+     * @return The counter, as if it had been shifted at every tick.
+     */
+    private long counter(int frame) {
+        long pending = ticks - normalizedAt[frame];
+        if (pending > 0) {
+            counters[frame] = (pending >= counterBits) ? 0 : counters[frame] >>> pending;
+            normalizedAt[frame] = ticks;
+        }
+        return counters[frame];
+    }
+    
+    
+    /**
+     * Finds the frame with the least counter, the lowest numbered one on ties.
+     * 
+     * @return The frame to evict.
+     */
+    private int victim() {
+        if (!zeroFrames.isEmpty()) {
+            return zeroFrames.peek();
+        }
+        
+        // every counter is non-zero; the least ones were referenced longest ago
+        for (long tick = Math.max(0, ticks - counterBits + 1); tick <= ticks; tick++) {
+            int head = bucketHeads[(int) (tick % counterBits)];
+            if (head == -1) {
+                continue;
+            }
+            
+            int frameLocation = head;
+            long value = counter(head);
+            for (int i = nextInBucket[head]; i != -1; i = nextInBucket[i]) {
+                int cmp = Long.compareUnsigned(counter(i), value);
+                if (cmp < 0 || (cmp == 0 && i < frameLocation)) {
+                    frameLocation = i;
+                    value = counter(i);
+                }
+            }
+            return frameLocation;
+        }
+        
+        throw new IllegalStateException("No frame to evict");
+    }
+    
+    
+    /**
+     * Takes the frame out of its bucket or the zero set.
+     */
+    private void unlink(int frame) {
+        if (lastReferenced[frame] == -1) {
+            return;
+        }
+        if (zeroFrames.contains(frame)) {
+            zeroFrames.remove(frame);
+            return;
+        }
+        
+        int next = nextInBucket[frame];
+        int prev = prevInBucket[frame];
+        if (prev == -1) {
+            bucketHeads[(int) (lastReferenced[frame] % counterBits)] = next;
+        } else {
+            nextInBucket[prev] = next;
+        }
+        if (next != -1) {
+            prevInBucket[next] = prev;
         }
     }
    
@@ -64,11 +204,11 @@ public class AgingPageTable {
      * Using the aging counter bits, look for the Least Recently Used one, 
      *      evict it, and insert the new frame.
      */
-    private int replace(String address) {
+    private int replace(long address) {
         // first search if this frame exists already
         int frameLocation = search(address);
         
-        if ((frameLocation == -1) && (activeFrames < frames.length)) {
+        if ((frameLocation == -1) && (activeFrames < frames.size())) {
             // still have open frames to use
             frameLocation = activeFrames;   // frame to use is this empty one
             activeFrames++;                 // active frames goes up
@@ -76,33 +216,33 @@ public class AgingPageTable {
             // update total number of page faults
             pageFaults++;
             
-            frames[frameLocation].setAddress(address);
+            frames.setAddress(frameLocation, address);
+            index.put(address, frameLocation);
             
         } else if (frameLocation == -1) {
             // must evict. find the frame with the least amount of use
-            int value = counters[0];
-            frameLocation = 0;
-            for (int i=0; i < activeFrames; i++) {
-                if (counters[i] < value) { 
-                    frameLocation = i;      // hold location of oldest frame
-                    value = counters[i];    // hold oldest frame's value
-                }
-            }
+            frameLocation = victim();
             
             // update total number of page faults
             pageFaults++;
             
             // see if the current frame needs written to disk before replacing
-            if (frames[frameLocation].isDirty()) { diskWrites++; }
+            if (frames.isDirty(frameLocation)) { diskWrites++; }
+            if (listener != null) {
+                listener.pageEvicted(frames.getAddress(frameLocation), frames.isDirty(frameLocation));
+            }
             
             // set the new address of this frame
-            frames[frameLocation].setAddress(address);
+            index.remove(frames.getAddress(frameLocation));
+            index.put(address, frameLocation);
+            frames.setAddress(frameLocation, address);
             
             // default to not being dirty (will change in Write function if needed)
-            frames[frameLocation].isDirty(false);
+            frames.isDirty(frameLocation, false);
             
             // new frame means our aging counter needs reset
             counters[frameLocation] = 0;
+            normalizedAt[frameLocation] = ticks;
             
         } else if (frameLocation >= 0) {
             // frame already exists. 
@@ -113,20 +253,13 @@ public class AgingPageTable {
     
     
     /**
-     * Searches the RAM array for the given address and returns its location if found.
+     * Looks up the given address in the frame index and returns its location if found.
      * 
      * @param address The memory address to search for.
      * @return The location of the referenced memory address in RAM; otherwise -1.
      */
-    private int search(String address) {
-        int frameLocation = -1;
-        for (int i=0; i<activeFrames; i++) {
-            if (frames[i].equalsAddress(address)) {
-                frameLocation = i;
-            }
-        }
-        
-        return frameLocation;
+    private int search(long address) {
+        return index.get(address);
     }
     
     
@@ -137,20 +270,30 @@ public class AgingPageTable {
      * 
      * @param address The new/existing page frame address to update as referenced.
      */
-    public void read(String address) {
-        int frameLocation = replace(address);   // insert / update / replace frame
-        updateCounter(frameLocation);           // mark this frame as referenced within the bitmap
-        countdown();                            // one refresh frame has occurred
+    @Override
+    public void read(long address) {
+        reference(address, false);
     }
     
     
     /**
-     * Sets the 8th bit as referenced.
+     * Sets the counter's most significant bit as referenced and files the
+     *      frame under the current tick.
      * 
      * @param frameCounter The frame counter number to update.
      */
     private void updateCounter(int frameCounter) {
-        counters[frameCounter] = counters[frameCounter] | 256;
+        counters[frameCounter] = counter(frameCounter) | (1L << (counterBits - 1));
+        
+        unlink(frameCounter);
+        lastReferenced[frameCounter] = ticks;
+        int bucket = (int) (ticks % counterBits);
+        prevInBucket[frameCounter] = -1;
+        nextInBucket[frameCounter] = bucketHeads[bucket];
+        if (bucketHeads[bucket] != -1) {
+            prevInBucket[bucketHeads[bucket]] = frameCounter;
+        }
+        bucketHeads[bucket] = frameCounter;
     }
     
     /**
@@ -164,9 +307,27 @@ public class AgingPageTable {
      *      
      * @param address The new/existing page frame name to update as dirty.
      */
-    public void write(String address) {
+    @Override
+    public void write(long address) {
+        reference(address, true);
+    }
+    
+    @Override
+    public void access(long[] pages, boolean[] writes, int length) {
+        for (int i = 0; i < length; i++) {
+            reference(pages[i], writes[i]);
+        }
+    }
+    
+    /**
+     * Loads (or keeps) the given page, marks it referenced (and dirty for a
+     *      write), then advances the refresh clock.
+     */
+    private void reference(long address, boolean isDirty) {
         int frameLocation = replace(address);   // insert / update / replace frame
-        frames[frameLocation].isDirty(true);    // mark dirty because this is a write
+        if (isDirty) {
+            frames.isDirty(frameLocation, true);    // mark dirty because this is a write
+        }
         updateCounter(frameLocation);           // mark this frame as referenced within the bitmap
         countdown();                            // one refresh frame has occurred
     }
@@ -174,6 +335,6 @@ public class AgingPageTable {
     @Override
     public String toString() {
         return String.format("FRAMES: %s\nACTIVE: %d\nPAGE FAULTS: %d\nDISK WRITES: %d", 
-                Arrays.toString(frames), this.activeFrames, this.pageFaults, this.diskWrites);
+                frames, this.activeFrames, this.pageFaults, this.diskWrites);
     }
 }
\ No newline at end of file
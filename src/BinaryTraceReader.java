@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Reads the compact binary trace format written by TraceConverter:
+ *
+ *      header:  int magic, int version, long page size, long reference count
+ *      records: one long per reference, (page number &lt;&lt; 1) | (1 if write)
+ *
+ * The file is memory-mapped one segment at a time, so traces larger than
+ *      a single MappedByteBuffer (2GB) are read without any parsing.
+ */
+
+public class BinaryTraceReader implements TraceSource {
+    public static final int MAGIC = 0x564D5452;     // "VMTR"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 24;
+    public static final int RECORD_SIZE = 8;
+
+    // largest whole number of records that fits in one mapping
+    private static final long SEGMENT_SIZE = (Integer.MAX_VALUE / RECORD_SIZE) * (long) RECORD_SIZE;
+
+    private final FileChannel channel;
+    private final long pageSize;
+    private final long references;
+
+    private MappedByteBuffer segment;
+    private long position;          // index of the next record to read
+
+    private long address;
+    private boolean write;
+
+    public BinaryTraceReader(String traceFile) throws IOException {
+        channel = FileChannel.open(Paths.get(traceFile), StandardOpenOption.READ);
+
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC) {
+            channel.close();
+            throw new IOException(traceFile + " is not a binary trace");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            channel.close();
+            throw new IOException(String.format("Unsupported binary trace version %d", version));
+        }
+        pageSize = header.getLong();
+        references = header.getLong();
+
+        if (channel.size() < HEADER_SIZE + references * RECORD_SIZE) {
+            channel.close();
+            throw new IOException(traceFile + " is truncated");
+        }
+
+        segment = null;
+        position = 0;
+    }
+
+
+    /**
+     * Maps the segment of the file that holds the record at the current position.
+     */
+    private void mapSegment() throws IOException {
+        long offset = HEADER_SIZE + position * RECORD_SIZE;
+        long length = Math.min(SEGMENT_SIZE, (references - position) * RECORD_SIZE);
+        segment = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+
+    @Override
+    public boolean next() throws IOException {
+        if (position >= references) {
+            return false;
+        }
+        if (segment == null || !segment.hasRemaining()) {
+            mapSegment();
+        }
+
+        long record = segment.getLong();
+        address = record >>> 1;
+        write = (record & 1) != 0;
+        position++;
+
+        return true;
+    }
+
+    /**
+     * Decodes straight out of the mapped segment, up to the end of it.
+     */
+    @Override
+    public int next(long[] addresses, boolean[] writes) throws IOException {
+        if (position >= references) {
+            return 0;
+        }
+        if (segment == null || !segment.hasRemaining()) {
+            mapSegment();
+        }
+
+        int length = Math.min(addresses.length, segment.remaining() / RECORD_SIZE);
+        for (int i = 0; i < length; i++) {
+            long record = segment.getLong();
+            addresses[i] = record >>> 1;
+            writes[i] = (record & 1) != 0;
+        }
+        position += length;
+
+        return length;
+    }
+
+    @Override
+    public long getAddress() {
+        return this.address;
+    }
+
+    @Override
+    public boolean isWrite() {
+        return this.write;
+    }
+
+
+    /**
+     * @return The page size, in bytes, that the trace's page numbers are in.
+     */
+    @Override
+    public long getPageSize() {
+        return this.pageSize;
+    }
+
+    /**
+     * @return The total number of references recorded in the trace header.
+     */
+    public long getNumReferences() {
+        return this.references;
+    }
+
+
+    /**
+     * Moves back to the first reference so the trace can be swept again.
+     */
+    public void rewind() {
+        segment = null;
+        position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        segment = null;
+        channel.close();
+    }
+}
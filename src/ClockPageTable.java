@@ -1,6 +1,3 @@
-
-import java.util.Arrays;
-
 /**
  *
  * @author Joe Meszar
@@ -9,18 +6,26 @@ import java.util.Arrays;
  * 
  */
 
-public class ClockPageTable {
-    ClockPageFrame[] frames;
+public class ClockPageTable implements PageTable {
+    FrameStore frames;
+    FrameIndex index;
     int oldestFrame;
     int activeFrames;
-    int pageFaults;
-    int diskWrites;
+    long pageFaults;
+    long diskWrites;
+    PageEventListener listener;
     
     public ClockPageTable(int numFrames) {
-        frames = new ClockPageFrame[numFrames];
-        for (int i=0; i < numFrames; i++) {
-            frames[i] = new ClockPageFrame();
-        }
+        this(numFrames, FrameStore.HEAP);
+    }
+    
+    /**
+     * @param numFrames The number of page frames in RAM.
+     * @param backend Where the frame store keeps its columns (see FrameStore.create).
+     */
+    public ClockPageTable(int numFrames, String backend) {
+        frames = FrameStore.create(numFrames, backend);
+        index = new FrameIndex(numFrames);
         
         oldestFrame = 0;
         activeFrames = 0;
@@ -28,12 +33,18 @@ public class ClockPageTable {
         diskWrites = 0;
     }
     
-    public int getNumPageFaults() {
+    @Override
+    public long getNumPageFaults() {
         return this.pageFaults;
     }
-    public int getNumWritesToDisk() {
+    @Override
+    public long getNumWritesToDisk() {
         return this.diskWrites;
     }
+    @Override
+    public void setPageEventListener(PageEventListener listener) {
+        this.listener = listener;
+    }
     
     
     /**
@@ -42,46 +53,54 @@ public class ClockPageTable {
      * 
      *      If current frame is referenced, mark as unreferenced and move to next
      *      If current frame is unreferenced, replace with new frame.
+     * 
+     *      The referenced flags are a bitmap, so the hand skips to the next
+     *      unreferenced frame and clears the flags it passed 64 frames at a time.
      */
-    private void replace(String address, boolean isDirty) {
-        while (frames[oldestFrame].isReferenced()) {
-            frames[oldestFrame].isReferenced(false);
-            oldestFrame = (oldestFrame+1) % frames.length;  // "wrap" around
+    private void replace(long address, boolean isDirty) {
+        int victim = frames.nextUnreferenced(oldestFrame);
+        if (victim != -1) {
+            frames.clearReferenced(oldestFrame, victim);
+        } else {
+            // referenced up to the end; "wrap" around
+            frames.clearReferenced(oldestFrame, frames.size());
+            victim = frames.nextUnreferenced(0);    // at the latest, the old hand position
+            frames.clearReferenced(0, victim);
         }
+        oldestFrame = victim;
         
         // see if the current frame needs written to disk before replacing
-        if (frames[oldestFrame].isDirty()) {
+        if (frames.isDirty(oldestFrame)) {
             diskWrites++;
         }
         
+        if (listener != null) {
+            listener.pageEvicted(frames.getAddress(oldestFrame), frames.isDirty(oldestFrame));
+        }
+        
         // overwrite the oldest unreferenced frame with the new address
-        frames[oldestFrame].setAddress(address);
-        frames[oldestFrame].isReferenced(true);
-        frames[oldestFrame].isDirty(isDirty);
+        index.remove(frames.getAddress(oldestFrame));
+        index.put(address, oldestFrame);
+        frames.setAddress(oldestFrame, address);
+        frames.isReferenced(oldestFrame, true);
+        frames.isDirty(oldestFrame, isDirty);
         
         // update total number of page faults
         pageFaults++;
         
         // oldest is now next to the currently replaced page frame
-        oldestFrame = (oldestFrame+1) % frames.length;  // "wrap" around
+        oldestFrame = (oldestFrame+1) % frames.size();  // "wrap" around
     }
     
     
     /**
-     * Searches the RAM array for the given address and returns its location if found.
+     * Looks up the given address in the frame index and returns its location if found.
      * 
      * @param address The memory address to search for.
      * @return The location of the referenced memory address in RAM; otherwise -1.
      */
-    private int search(String address) {
-        int location = -1;
-        for (int i=0; i<activeFrames; i++) {
-            if (frames[i].equalsAddress(address)) {
-                location = i;
-            }
-        }
-        
-        return location;
+    private int search(long address) {
+        return index.get(address);
     }
     
     
@@ -92,27 +111,9 @@ public class ClockPageTable {
      * 
      * @param address The new/existing page frame address to update as referenced.
      */
-    public void read(String address) {
-        // first search if this frame exists
-        int location = search(address);
-        
-        // couldn't find, so insert
-        if (location == -1) {
-            if (activeFrames < frames.length) {
-                // there's room to insert
-                frames[activeFrames].setAddress(address);
-                frames[activeFrames].isDirty(false);
-                frames[activeFrames].isReferenced(true);
-                activeFrames++;
-                pageFaults++;
-            } else {
-                // must evict an existing page and insert new
-                replace(address, false);
-            }
-        } else {
-            // frame already existed; update referenced flag
-            frames[location].isReferenced(true);
-        }
+    @Override
+    public void read(long address) {
+        reference(address, false);
     }
     
     
@@ -127,32 +128,53 @@ public class ClockPageTable {
      *      
      * @param address The new/existing page frame name to update as dirty.
      */
-    public void write(String address) {
+    @Override
+    public void write(long address) {
+        reference(address, true);
+    }
+    
+    @Override
+    public void access(long[] pages, boolean[] writes, int length) {
+        for (int i = 0; i < length; i++) {
+            reference(pages[i], writes[i]);
+        }
+    }
+    
+    
+    /**
+     * Marks the given page referenced (and dirty for a write), loading it
+     *      into a free frame or over the clock's victim if it is not resident.
+     */
+    private void reference(long address, boolean isDirty) {
         // first search if this frame exists
         int location = search(address);
         
         // couldn't find, so insert
         if (location == -1) {
-            if (activeFrames < frames.length) {
+            if (activeFrames < frames.size()) {
                 // there's room to insert
-                frames[activeFrames].setAddress(address);
-                frames[activeFrames].isDirty(true);
-                frames[activeFrames].isReferenced(true);
+                frames.setAddress(activeFrames, address);
+                index.put(address, activeFrames);
+                frames.isDirty(activeFrames, isDirty);
+                frames.isReferenced(activeFrames, true);
                 activeFrames++;
+                pageFaults++;
             } else {
                 // must evict an existing page and insert new
-                replace(address, true);
+                replace(address, isDirty);
             }
         } else {
-            // frame already existed; update referenced & dirty flag
-            frames[location].isReferenced(true);
-            frames[location].isDirty(true);         // dirty because this is a write
+            // frame already existed; update referenced (& dirty) flag
+            frames.isReferenced(location, true);
+            if (isDirty) {
+                frames.isDirty(location, true);     // dirty because this is a write
+            }
         }
     }
     
     @Override
     public String toString() {
         return String.format("FRAMES: %s\nOLDEST: %d\nACTIVE: %d\nPAGE FAULTS: %d\nDISK WRITES: %d", 
-                Arrays.toString(frames), this.oldestFrame, this.activeFrames, this.pageFaults, this.diskWrites);
+                frames, this.oldestFrame, this.activeFrames, this.pageFaults, this.diskWrites);
     }
 }
\ No newline at end of file
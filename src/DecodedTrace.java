@@ -0,0 +1,122 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * A whole trace decoded once into primitive arrays, so it can be replayed
+ *      through many page tables without reading or parsing the file again.
+ *      Instances are never modified after loading and may be shared freely.
+ */
+
+public class DecodedTrace {
+    private final long[] addresses;
+    private final boolean[] writes;
+    private final int length;
+
+    private DecodedTrace(long[] addresses, boolean[] writes, int length) {
+        this.addresses = addresses;
+        this.writes = writes;
+        this.length = length;
+    }
+
+
+    /**
+     * Reads a whole trace into memory.
+     *
+     * @param traceFile The text or binary trace to load.
+     * @return The decoded trace.
+     * @throws IOException If the trace cannot be read.
+     */
+    public static DecodedTrace load(String traceFile) throws IOException {
+        return load(traceFile, PageMapper.NONE);
+    }
+
+    /**
+     * Reads a whole trace into memory, mapping addresses to page numbers.
+     *
+     * @param traceFile The text or binary trace to load.
+     * @param mapper How addresses become page numbers.
+     * @return The decoded trace.
+     * @throws IOException If the trace cannot be read.
+     */
+    public static DecodedTrace load(String traceFile, PageMapper mapper) throws IOException {
+        long[] addresses = new long[1024];
+        boolean[] writes = new boolean[1024];
+        int length = 0;
+
+        try (TraceSource reader = TraceSource.open(traceFile, mapper)) {
+            while (reader.next()) {
+                if (length == addresses.length) {
+                    addresses = Arrays.copyOf(addresses, length * 2);
+                    writes = Arrays.copyOf(writes, length * 2);
+                }
+                addresses[length] = reader.getAddress();
+                writes[length] = reader.isWrite();
+                length++;
+            }
+        }
+
+        return new DecodedTrace(Arrays.copyOf(addresses, length), Arrays.copyOf(writes, length), length);
+    }
+
+
+    /**
+     * Wraps references that were produced in memory rather than read from a file.
+     *
+     * @param addresses The page referenced by each reference.
+     * @param writes Whether each reference is a write; same length as addresses.
+     * @return The decoded trace. The arrays are not copied and must not be modified.
+     */
+    public static DecodedTrace of(long[] addresses, boolean[] writes) {
+        if (addresses.length != writes.length) {
+            throw new IllegalArgumentException("addresses and writes differ in length");
+        }
+        return new DecodedTrace(addresses, writes, addresses.length);
+    }
+
+
+    /**
+     * @return The number of references in the trace.
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * @param line A reference index in the trace.
+     * @return The page referenced on that line.
+     */
+    public long getAddress(int line) {
+        return addresses[line];
+    }
+
+    /**
+     * @param line A reference index in the trace.
+     * @return True if that reference is a write; otherwise false.
+     */
+    public boolean isWrite(int line) {
+        return writes[line];
+    }
+
+
+    /**
+     * @return The next-use line number of every reference (see NextUseIndex).
+     */
+    public int[] nextUse() {
+        return NextUseIndex.buildNextUse(addresses, length);
+    }
+
+
+    /**
+     * Feeds every reference of the trace, in order, to the given page table.
+     *
+     * @param table The page table to drive.
+     */
+    public void replay(PageTable table) {
+        table.access(addresses, writes, length);
+    }
+}
@@ -0,0 +1,153 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Reads the delta-encoded binary trace format written by TraceConverter -d:
+ *
+ *      header:  int magic, int version, long page size
+ *      records: one unsigned LEB128 varint per reference,
+ *               (zigzag(page number - previous page number) &lt;&lt; 1) | (1 if write)
+ *
+ * Nearby references take one or two bytes instead of eight. There is no
+ *      reference count, so the format can be written and read as a stream,
+ *      e.g. through gzip; the trace ends at the end of the input.
+ */
+
+public class DeltaTraceReader implements TraceSource {
+    public static final int MAGIC = 0x564D5444;     // "VMTD"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final long pageSize;
+
+    private long address;
+    private boolean write;
+    private long references;
+
+    public DeltaTraceReader(String traceFile) throws IOException {
+        this(FileChannel.open(Paths.get(traceFile), StandardOpenOption.READ));
+    }
+
+    /**
+     * @param channel The trace, positioned at its header; closed with this reader.
+     */
+    public DeltaTraceReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.flip();  // start out empty so the first read fills it
+
+        try {
+            if (nextInt() != MAGIC) {
+                throw new IOException("Not a delta trace");
+            }
+            int version = nextInt();
+            if (version != VERSION) {
+                throw new IOException(String.format("Unsupported delta trace version %d", version));
+            }
+            pageSize = ((long) nextInt() << 32) | (nextInt() & 0xFFFFFFFFL);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        address = 0;
+        write = false;
+        references = 0;
+    }
+
+
+    /**
+     * Returns the next byte of the trace, refilling the buffer as needed.
+     *
+     * @return The next byte (0-255), or -1 at the end of the input.
+     */
+    private int nextByte() throws IOException {
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            buffer.flip();
+
+            if (read < 0) {
+                return -1;
+            }
+        }
+
+        return buffer.get() & 0xFF;
+    }
+
+    private int nextInt() throws IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = nextByte();
+            if (b == -1) {
+                throw new IOException("Delta trace header is truncated");
+            }
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+
+
+    @Override
+    public boolean next() throws IOException {
+        int b = nextByte();
+        if (b == -1) {
+            return false;
+        }
+
+        long value = 0;
+        int shift = 0;
+        while (b >= 0x80) {
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+            b = nextByte();
+            if (b == -1 || shift > 63) {
+                throw new IOException(String.format("Malformed delta trace record %d", references + 1));
+            }
+        }
+        value |= (long) b << shift;
+
+        long zigzag = value >>> 1;
+        address += (zigzag >>> 1) ^ -(zigzag & 1);
+        write = (value & 1) != 0;
+        references++;
+
+        return true;
+    }
+
+    @Override
+    public long getAddress() {
+        return this.address;
+    }
+
+    @Override
+    public boolean isWrite() {
+        return this.write;
+    }
+
+    @Override
+    public long getPageSize() {
+        return this.pageSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
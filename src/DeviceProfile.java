@@ -0,0 +1,60 @@
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Latency and parallelism of the swap device used by IoCostModel. Every
+ *      request occupies one of queueDepth channels for its whole latency.
+ */
+
+public class DeviceProfile {
+    public static final DeviceProfile HDD = new DeviceProfile("hdd", 8_000_000, 8_000_000, 1);
+    public static final DeviceProfile SSD = new DeviceProfile("ssd", 100_000, 250_000, 32);
+    public static final DeviceProfile NVME = new DeviceProfile("nvme", 20_000, 30_000, 64);
+
+    final String name;
+    final long readNanos;
+    final long writeNanos;
+    final int queueDepth;
+
+    public DeviceProfile(String name, long readNanos, long writeNanos, int queueDepth) {
+        if (readNanos < 0 || writeNanos < 0 || queueDepth < 1) {
+            throw new IllegalArgumentException("Invalid device profile " + name);
+        }
+        this.name = name;
+        this.readNanos = readNanos;
+        this.writeNanos = writeNanos;
+        this.queueDepth = queueDepth;
+    }
+
+
+    /**
+     * Parses &lt;hdd|ssd|nvme&gt;[:read_us[:write_us[:queue depth]]], where the
+     *      optional fields override the named profile's defaults.
+     *
+     * @param text The device specification.
+     * @return The device profile.
+     */
+    public static DeviceProfile parse(String text) {
+        String[] parts = text.split(":");
+        DeviceProfile base;
+        switch (parts[0]) {
+            case "hdd":     base = HDD; break;
+            case "ssd":     base = SSD; break;
+            case "nvme":    base = NVME; break;
+            default:        throw new IllegalArgumentException("Invalid device type specified");
+        }
+
+        long read = (parts.length > 1) ? Math.round(Double.parseDouble(parts[1]) * 1000) : base.readNanos;
+        long write = (parts.length > 2) ? Math.round(Double.parseDouble(parts[2]) * 1000) : base.writeNanos;
+        int queueDepth = (parts.length > 3) ? Integer.parseInt(parts[3]) : base.queueDepth;
+        return new DeviceProfile(base.name, read, write, queueDepth);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (read %.1fus, write %.1fus, queue depth %d)",
+                name, readNanos / 1000.0, writeNanos / 1000.0, queueDepth);
+    }
+}
@@ -0,0 +1,156 @@
+import java.util.Arrays;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ */
+
+public class FrameIndex {
+    private static final int EMPTY = -1;
+
+    /**
+     * Open-addressed (linear probing) table of page number -> frame number.
+     *      A slot is free when its frame value is EMPTY, so every long value
+     *      is a valid page number.
+     */
+    private long[] pages;
+    private int[] frames;
+    private int mask;
+    private int size;
+
+    public FrameIndex(int numFrames) {
+        // keep the table at most half full so probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(2, numFrames) * 2 - 1) << 1;
+
+        pages = new long[capacity];
+        frames = new int[capacity];
+        Arrays.fill(frames, EMPTY);
+        mask = capacity - 1;
+        size = 0;
+    }
+
+
+    /**
+     * Spreads the bits of a page number so that sequential pages do not
+     *      cluster into neighbouring slots.
+     */
+    private int slot(long page) {
+        long h = page * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+
+    /**
+     * Returns the frame number that currently holds the given page.
+     *
+     * @param page The virtual page number to search for.
+     * @return The location of the referenced page in RAM; otherwise -1.
+     */
+    public int get(long page) {
+        for (int i = slot(page); frames[i] != EMPTY; i = (i + 1) & mask) {
+            if (pages[i] == page) {
+                return frames[i];
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Records that the given page now lives in the given frame.
+     *
+     * @param page The virtual page number being loaded.
+     * @param frame The frame number it was loaded into.
+     */
+    public void put(long page, int frame) {
+        int i = slot(page);
+        while (frames[i] != EMPTY) {
+            if (pages[i] == page) {
+                frames[i] = frame;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+
+        pages[i] = page;
+        frames[i] = frame;
+        size++;
+
+        if (size * 2 > frames.length) {
+            grow();
+        }
+    }
+
+
+    /**
+     * Forgets the given page, typically because its frame was evicted.
+     *
+     * @param page The virtual page number being evicted.
+     */
+    public void remove(long page) {
+        int i = slot(page);
+        while (frames[i] != EMPTY) {
+            if (pages[i] == page) {
+                break;
+            }
+            i = (i + 1) & mask;
+        }
+        if (frames[i] == EMPTY) {
+            return;     // not present
+        }
+
+        // backward-shift deletion: pull later entries of the probe run into
+        //      the hole so that lookups never need tombstones
+        int hole = i;
+        for (int j = (hole + 1) & mask; frames[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(pages[j]);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                pages[hole] = pages[j];
+                frames[hole] = frames[j];
+                hole = j;
+            }
+        }
+        frames[hole] = EMPTY;
+        size--;
+    }
+
+
+    private void grow() {
+        long[] oldPages = pages;
+        int[] oldFrames = frames;
+
+        pages = new long[oldPages.length * 2];
+        frames = new int[oldFrames.length * 2];
+        Arrays.fill(frames, EMPTY);
+        mask = frames.length - 1;
+        size = 0;
+
+        for (int i = 0; i < oldFrames.length; i++) {
+            if (oldFrames[i] != EMPTY) {
+                put(oldPages[i], oldFrames[i]);
+            }
+        }
+    }
+
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < frames.length; i++) {
+            if (frames[i] != EMPTY) {
+                if (sb.length() > 1) { sb.append(", "); }
+                sb.append(String.format("%x=%d", pages[i], frames[i]));
+            }
+        }
+
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,243 @@
+import java.util.Arrays;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ */
+
+public abstract class FrameStore {
+    /**
+     * The default backend: the page and last-used columns are ordinary arrays.
+     */
+    public static final String HEAP = "heap";
+
+    /**
+     * Columnar storage for every page frame in RAM. Frame i is described by
+     *      its page and last-used time, kept by the subclass, and by bit i of
+     *      the occupied/dirty/referenced bitmaps, which stay here on the heap
+     *      (3 bits per frame) so sweeps can work on them a word at a time.
+     *      Emptiness is its own bit, so every long value is a valid page number.
+     */
+    private final int numFrames;
+    private final long[] occupied;
+    private final long[] dirty;
+    private final long[] referenced;
+
+    protected FrameStore(int numFrames) {
+        this.numFrames = numFrames;
+        occupied = new long[(numFrames + 63) >>> 6];
+        dirty = new long[(numFrames + 63) >>> 6];
+        referenced = new long[(numFrames + 63) >>> 6];
+    }
+
+
+    /**
+     * Creates an empty frame store.
+     *
+     * @param numFrames The number of page frames in RAM.
+     * @param backend Where to put the page and last-used columns: "heap",
+     *      "direct" (off-heap memory) or "file:&lt;dir&gt;" (memory-mapped
+     *      temporary files in that directory, so very large configurations
+     *      can spill to disk).
+     * @return A store with every frame empty.
+     */
+    public static FrameStore create(int numFrames, String backend) {
+        if (backend.equals(HEAP)) {
+            return new HeapFrameStore(numFrames);
+        }
+        if (backend.equals("direct")) {
+            return new OffHeapFrameStore(numFrames, null);
+        }
+        if (backend.startsWith("file:")) {
+            return new OffHeapFrameStore(numFrames, backend.substring("file:".length()));
+        }
+        throw new IllegalArgumentException("Invalid frame store specified");
+    }
+
+
+    /**
+     * @return The total number of page frames held by this store.
+     */
+    public int size() {
+        return numFrames;
+    }
+
+
+    /**
+     * Determines if the given page frame is empty and does not refer
+     *      to any specific virtual page.
+     *
+     * @param frame The frame number to check.
+     * @return True if the frame is empty; otherwise false.
+     */
+    public boolean isEmpty(int frame) {
+        return (occupied[frame >>> 6] & (1L << frame)) == 0;
+    }
+
+
+    /**
+     * Returns the virtual page number that the given page frame references.
+     *
+     * @param frame The frame number to read.
+     * @return The virtual page number associated with this page frame's data.
+     */
+    public abstract long getAddress(int frame);
+
+    /**
+     * Sets the virtual page number that the given frame corresponds to; the
+     *      frame is no longer empty.
+     *
+     * @param frame The frame number to update.
+     * @param address The virtual page number this page frame will refer to.
+     */
+    public void setAddress(int frame, long address) {
+        occupied[frame >>> 6] |= (1L << frame);
+        putAddress(frame, address);
+    }
+
+    /**
+     * Stores the page number column entry of the given frame.
+     *
+     * @param frame The frame number to update.
+     * @param address The virtual page number this page frame will refer to.
+     */
+    protected abstract void putAddress(int frame, long address);
+
+
+    /**
+     * Determines if the given page frame is flagged as being referenced.
+     *
+     * @param frame The frame number to check.
+     * @return True if this frame is being referenced; otherwise false.
+     */
+    public boolean isReferenced(int frame) {
+        return (referenced[frame >>> 6] & (1L << frame)) != 0;
+    }
+
+    /**
+     * Sets the referenced flag of the given page frame.
+     *
+     * @param frame The frame number to update.
+     * @param isReferenced True if the frame is to be considered as referencing a valid page; otherwise false.
+     */
+    public void isReferenced(int frame, boolean isReferenced) {
+        if (isReferenced) {
+            referenced[frame >>> 6] |= (1L << frame);
+        } else {
+            referenced[frame >>> 6] &= ~(1L << frame);
+        }
+    }
+
+
+    /**
+     * Finds the first frame at or after the given one whose referenced flag
+     *      is clear, 64 frames at a time.
+     *
+     * @param from The frame number to start at.
+     * @return The unreferenced frame; -1 if every frame from there on is referenced.
+     */
+    public int nextUnreferenced(int from) {
+        int word = from >>> 6;
+        if (word >= referenced.length) {
+            return -1;
+        }
+        long clear = ~referenced[word] & (-1L << from);
+        while (clear == 0) {
+            if (++word == referenced.length) {
+                return -1;
+            }
+            clear = ~referenced[word];
+        }
+
+        int frame = (word << 6) + Long.numberOfTrailingZeros(clear);
+        return (frame < numFrames) ? frame : -1;
+    }
+
+    /**
+     * Clears the referenced flag of every frame in the given range, 64 frames at a time.
+     *
+     * @param from The first frame number to clear.
+     * @param to One past the last frame number to clear.
+     */
+    public void clearReferenced(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+
+        if (first == last) {
+            referenced[first] &= ~(firstMask & lastMask);
+            return;
+        }
+        referenced[first] &= ~firstMask;
+        Arrays.fill(referenced, first + 1, last, 0L);
+        referenced[last] &= ~lastMask;
+    }
+
+
+    /**
+     * Determines if the given page frame is flagged as being "dirty" AKA
+     *      containing updated data that has not yet been written to disk.
+     *
+     * @param frame The frame number to check.
+     * @return True if this frame has updated data (dirty); otherwise false.
+     */
+    public boolean isDirty(int frame) {
+        return (dirty[frame >>> 6] & (1L << frame)) != 0;
+    }
+
+    /**
+     * Sets the dirty flag of the given page frame.
+     *
+     * @param frame The frame number to update.
+     * @param isDirty True if the frame is to be considered as dirty; otherwise false.
+     */
+    public void isDirty(int frame, boolean isDirty) {
+        if (isDirty) {
+            dirty[frame >>> 6] |= (1L << frame);
+        } else {
+            dirty[frame >>> 6] &= ~(1L << frame);
+        }
+    }
+
+
+    /**
+     * @param frame The frame number to read.
+     * @return The virtual time at which the given frame was last used.
+     */
+    public abstract long getLastUsed(int frame);
+
+    /**
+     * @param frame The frame number to update.
+     * @param timestamp The virtual time at which the given frame was used.
+     */
+    public abstract void setLastUsed(int frame, long timestamp);
+
+
+    /**
+     * Formats a single frame the same way the old per-frame objects did.
+     */
+    private String frameToString(int frame) {
+        if (this.isEmpty(frame)) { return "null"; }
+
+        return String.format("ADDRESS: %x DIRTY: %s REFERENCED: %s",
+                getAddress(frame), isDirty(frame), isReferenced(frame));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < numFrames; i++) {
+            if (i > 0) { sb.append(", "); }
+            sb.append(frameToString(i));
+        }
+
+        return sb.append(']').toString();
+    }
+}
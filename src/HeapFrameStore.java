@@ -0,0 +1,39 @@
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Frame store whose page and last-used columns are ordinary long arrays.
+ */
+
+public class HeapFrameStore extends FrameStore {
+    private final long[] pages;
+    private final long[] lastUsed;
+
+    public HeapFrameStore(int numFrames) {
+        super(numFrames);
+        pages = new long[numFrames];
+        lastUsed = new long[numFrames];
+    }
+
+    @Override
+    public long getAddress(int frame) {
+        return pages[frame];
+    }
+
+    @Override
+    protected void putAddress(int frame, long address) {
+        pages[frame] = address;
+    }
+
+    @Override
+    public long getLastUsed(int frame) {
+        return lastUsed[frame];
+    }
+
+    @Override
+    public void setLastUsed(int frame, long timestamp) {
+        lastUsed[frame] = timestamp;
+    }
+}
@@ -0,0 +1,168 @@
+import java.util.Arrays;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Binary max-heap of frame numbers keyed by a long priority. Each frame can
+ *      be in the heap at most once, and its position is tracked so that its
+ *      key can be changed in O(log n). Ties are broken in favour of the lower
+ *      frame number, which matches the order a linear scan would pick.
+ */
+
+public class IndexedMaxHeap {
+    private final int[] heap;       // heap[i] = frame at heap slot i
+    private final int[] position;   // position[frame] = heap slot, or -1
+    private final long[] keys;      // keys[frame] = priority of frame
+    private int size;
+
+    public IndexedMaxHeap(int numFrames) {
+        heap = new int[numFrames];
+        position = new int[numFrames];
+        keys = new long[numFrames];
+        Arrays.fill(position, -1);
+        size = 0;
+    }
+
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int frame) {
+        return position[frame] >= 0;
+    }
+
+    public long getKey(int frame) {
+        return keys[frame];
+    }
+
+
+    /**
+     * @return The frame with the largest key, without removing it.
+     */
+    public int peek() {
+        return heap[0];
+    }
+
+
+    /**
+     * @return The second largest key in the heap, or Long.MIN_VALUE if the
+     *      heap holds fewer than two frames.
+     */
+    public long secondKey() {
+        long second = Long.MIN_VALUE;
+        if (size > 1) { second = keys[heap[1]]; }
+        if (size > 2) { second = Math.max(second, keys[heap[2]]); }
+        return second;
+    }
+
+
+    /**
+     * Adds a frame to the heap, or changes its key if it is already present.
+     *
+     * @param frame The frame number.
+     * @param key The frame's priority; larger keys rise to the top.
+     */
+    public void put(int frame, long key) {
+        if (position[frame] < 0) {
+            heap[size] = frame;
+            position[frame] = size;
+            keys[frame] = key;
+            siftUp(size++);
+            return;
+        }
+
+        long old = keys[frame];
+        keys[frame] = key;
+        if (key > old) {
+            siftUp(position[frame]);
+        } else {
+            siftDown(position[frame]);
+        }
+    }
+
+
+    /**
+     * Removes and returns the frame with the largest key.
+     */
+    public int poll() {
+        int top = heap[0];
+        remove(top);
+        return top;
+    }
+
+
+    /**
+     * Removes the given frame from the heap if it is present.
+     */
+    public void remove(int frame) {
+        int slot = position[frame];
+        if (slot < 0) {
+            return;
+        }
+
+        position[frame] = -1;
+        size--;
+        if (slot == size) {
+            return;
+        }
+
+        // move the last element into the hole and restore the heap order
+        int last = heap[size];
+        heap[slot] = last;
+        position[last] = slot;
+        siftUp(slot);
+        siftDown(position[last]);
+    }
+
+
+    /**
+     * @return True if frame a belongs above frame b in the heap.
+     */
+    private boolean above(int a, int b) {
+        return keys[a] > keys[b] || (keys[a] == keys[b] && a < b);
+    }
+
+    private void siftUp(int slot) {
+        int frame = heap[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (!above(frame, heap[parent])) {
+                break;
+            }
+            heap[slot] = heap[parent];
+            position[heap[slot]] = slot;
+            slot = parent;
+        }
+        heap[slot] = frame;
+        position[frame] = slot;
+    }
+
+    private void siftDown(int slot) {
+        int frame = heap[slot];
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && above(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!above(heap[child], frame)) {
+                break;
+            }
+            heap[slot] = heap[child];
+            position[heap[slot]] = slot;
+            slot = child;
+        }
+        heap[slot] = frame;
+        position[frame] = slot;
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Turns the faults and write-backs of a page table into simulated time on a
+ *      swap device. Every reference costs one memory access. A fault also waits
+ *      for its page to be read in, after the write-back of a dirty victim if
+ *      there is one. Background write-backs (pages cleaned in place, or flushed
+ *      by a PageCleaner) keep the device busy, but no reference waits on them
+ *      directly.
+ *
+ *      The device serves up to queueDepth requests at once, each on the
+ *      channel that frees up first.
+ */
+
+public class IoCostModel implements PageTable, PageEventListener {
+    /**
+     * Cost of one memory reference that does not fault, in nanoseconds.
+     */
+    public static final long DEFAULT_MEMORY_NANOS = 100;
+
+    private final PageTable table;
+    private final DeviceProfile device;
+    private final long memoryNanos;
+    private PageEventListener listener;
+
+    private final long[] busyUntil;     // when each device channel is next free
+    private long busyTotal;             // channel-nanoseconds spent serving requests
+    private long now;                   // simulated time, in nanoseconds
+    private long references;
+    private long victimWritten;         // when the current fault's dirty victim is on disk; -1 if none
+
+    private final LatencyHistogram stalls = new LatencyHistogram();
+
+    public IoCostModel(PageTable table, DeviceProfile device) {
+        this(table, device, DEFAULT_MEMORY_NANOS);
+    }
+
+    /**
+     * @param table The page table to charge for.
+     * @param device The swap device.
+     * @param memoryNanos The cost of one memory reference that does not fault.
+     */
+    public IoCostModel(PageTable table, DeviceProfile device, long memoryNanos) {
+        this.table = table;
+        this.device = device;
+        this.memoryNanos = memoryNanos;
+        this.busyUntil = new long[device.queueDepth];
+        this.victimWritten = -1;
+
+        table.setPageEventListener(this);
+    }
+
+    /**
+     * @return The page table this model wraps.
+     */
+    public PageTable getPageTable() {
+        return this.table;
+    }
+
+    public DeviceProfile getDevice() {
+        return this.device;
+    }
+
+
+    @Override
+    public void read(long address) {
+        long faults = table.getNumPageFaults();
+        table.read(address);
+        advance(table.getNumPageFaults() != faults);
+    }
+
+    @Override
+    public void write(long address) {
+        long faults = table.getNumPageFaults();
+        table.write(address);
+        advance(table.getNumPageFaults() != faults);
+    }
+
+    @Override
+    public long getNumPageFaults() {
+        return table.getNumPageFaults();
+    }
+
+    @Override
+    public long getNumWritesToDisk() {
+        return table.getNumWritesToDisk();
+    }
+
+    @Override
+    public void setPageEventListener(PageEventListener listener) {
+        this.listener = listener;
+    }
+
+
+    @Override
+    public void pageEvicted(long address, boolean dirty) {
+        if (dirty) {
+            victimWritten = submit(now, device.writeNanos);
+        }
+        if (listener != null) {
+            listener.pageEvicted(address, dirty);
+        }
+    }
+
+    @Override
+    public void pageCleaned(long address) {
+        submit(now, device.writeNanos);
+        if (listener != null) {
+            listener.pageCleaned(address);
+        }
+    }
+
+
+    /**
+     * Charges one reference: the memory access, plus the stall for a fault.
+     */
+    private void advance(boolean fault) {
+        references++;
+        if (fault) {
+            long issued = (victimWritten >= 0) ? victimWritten : now;
+            long loaded = submit(issued, device.readNanos);
+            stalls.record(loaded - now);
+            now = loaded;
+            victimWritten = -1;
+        }
+        now += memoryNanos;
+    }
+
+
+    /**
+     * Starts a request on the channel that frees up first.
+     *
+     * @param at The earliest time the request can start.
+     * @param latency How long the request occupies its channel.
+     * @return When the request completes.
+     */
+    private long submit(long at, long latency) {
+        int channel = 0;
+        for (int i = 1; i < busyUntil.length; i++) {
+            if (busyUntil[i] < busyUntil[channel]) {
+                channel = i;
+            }
+        }
+        long start = Math.max(at, busyUntil[channel]);
+        busyUntil[channel] = start + latency;
+        busyTotal += latency;
+        return start + latency;
+    }
+
+
+    /**
+     * @return The total simulated time, in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return this.now;
+    }
+
+    /**
+     * @return The mean simulated time per reference, in nanoseconds.
+     */
+    public double getEffectiveAccessNanos() {
+        return (references == 0) ? 0 : (double) now / references;
+    }
+
+    /**
+     * @param percentile A percentile between 0 and 100.
+     * @return The fault stall time at that percentile, in nanoseconds (within about 3%).
+     */
+    public long getStallPercentile(double percentile) {
+        return stalls.percentile(percentile);
+    }
+
+    public long getMaxStall() {
+        return stalls.max;
+    }
+
+    /**
+     * @return The fraction of device capacity (all channels over the run) spent serving requests.
+     */
+    public double getDeviceUtilization() {
+        long end = now;
+        for (long busy : busyUntil) {
+            end = Math.max(end, busy);
+        }
+        return (end == 0) ? 0 : (double) busyTotal / ((double) end * busyUntil.length);
+    }
+
+
+    /**
+     * A histogram with 16 linear buckets per power of two, so any recorded
+     *      value is reported to within about 3% using a fixed, small array.
+     */
+    private static class LatencyHistogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+        private final long[] counts = new long[(Long.SIZE - SUB_BITS + 1) * SUB_BUCKETS];
+        private long total;
+        long max;
+
+        void record(long value) {
+            counts[bucket(value)]++;
+            total++;
+            max = Math.max(max, value);
+        }
+
+        long percentile(double percentile) {
+            long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(value(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * Values below 16 get a bucket each; larger ones keep their top 5 bits.
+         */
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BITS;
+            return shift * SUB_BUCKETS + (int) (value >>> shift);
+        }
+
+        /**
+         * @return The largest value that falls in the bucket.
+         */
+        private static long value(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            long mantissa = bucket - (long) shift * SUB_BUCKETS;
+            return ((mantissa + 1) << shift) - 1;
+        }
+    }
+}
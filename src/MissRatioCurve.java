@@ -0,0 +1,332 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Page fault and disk write counts for every frame count from 1 to N.
+ *
+ * LRU and OPT are stack algorithms: the pages held by n frames are always
+ *      among those held by n+1 frames. Both are computed exactly in a single
+ *      pass with Mattson's stack processing, by recording how deep in the
+ *      stack each page was when it was referenced again (its stack distance).
+ *      Clock, Aging and WSClock are not stack algorithms, so they are run once
+ *      per frame count over one shared, pre-decoded trace.
+ *
+ * A dirty page is written to disk when it is pushed below depth n, i.e. when
+ *      n frames would have evicted it. Since a page only sinks between its own
+ *      references, a write happens for n frames after the gap that follows a
+ *      write if every gap since that write had a stack distance of at most n
+ *      and this gap's distance is more than n.
+ */
+
+public class MissRatioCurve {
+    private final int maxFrames;
+    private final long[] faults;    // faults[n] for n frames, 1 <= n <= maxFrames
+    private final long[] writes;    // writes[n] for n frames
+
+    private MissRatioCurve(int maxFrames) {
+        this.maxFrames = maxFrames;
+        this.faults = new long[maxFrames + 2];
+        this.writes = new long[maxFrames + 2];
+    }
+
+    public int getMaxFrames() {
+        return this.maxFrames;
+    }
+
+    public long getNumPageFaults(int numFrames) {
+        return faults[numFrames];
+    }
+
+    public long getNumWritesToDisk(int numFrames) {
+        return writes[numFrames];
+    }
+
+
+    /**
+     * Exact LRU curve. Stack distances are counted with a Fenwick tree over
+     *      reference times holding a 1 at the last reference time of each page,
+     *      so each reference costs O(log length).
+     *
+     * @param trace The decoded trace.
+     * @param maxFrames The largest frame count to report.
+     * @return The curve for 1..maxFrames frames.
+     */
+    public static MissRatioCurve lru(DecodedTrace trace, int maxFrames) {
+        MissRatioCurve curve = new MissRatioCurve(maxFrames);
+        StackDistances distances = new StackDistances(curve);
+
+        int length = trace.length();
+        long[] tree = new long[length + 1];     // Fenwick tree, 1-based
+
+        for (int t = 0; t < length; t++) {
+            long address = trace.getAddress(t);
+            int page = distances.page(address);
+            int last = distances.lastTime[page];
+
+            long distance = StackDistances.COLD;
+            if (last >= 0) {
+                // distinct pages referenced since the last reference, plus itself
+                distance = sum(tree, t) - sum(tree, last + 1) + 1;
+                add(tree, last + 1, -1);
+            }
+            add(tree, t + 1, 1);
+
+            distances.reference(page, distance, trace.isWrite(t), t);
+        }
+
+        // pages still cached at the end sink below every later-referenced page
+        for (int page = 0; page < distances.numPages; page++) {
+            int last = distances.lastTime[page];
+            distances.finish(page, sum(tree, length) - sum(tree, last + 1) + 1);
+        }
+
+        return distances.done();
+    }
+
+    private static long sum(long[] tree, int i) {
+        long total = 0;
+        for (; i > 0; i -= i & -i) {
+            total += tree[i];
+        }
+        return total;
+    }
+
+    private static void add(long[] tree, int i, long delta) {
+        for (; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+
+    /**
+     * Exact OPT curve using Mattson's priority stack: after each reference the
+     *      stack is re-ordered so that the top n entries are exactly what OPT
+     *      with n frames holds. Each reference costs O(stack distance).
+     *
+     *      Page faults match OptimalPageTable for every frame count. When several
+     *      resident pages are never used again, OPT may evict any of them, so disk
+     *      writes can differ slightly from OptimalPageTable's lowest-frame choice.
+     *
+     * @param trace The decoded trace.
+     * @param maxFrames The largest frame count to report.
+     * @return The curve for 1..maxFrames frames.
+     */
+    public static MissRatioCurve opt(DecodedTrace trace, int maxFrames) {
+        MissRatioCurve curve = new MissRatioCurve(maxFrames);
+        StackDistances distances = new StackDistances(curve);
+
+        int[] nextUse = trace.nextUse();
+        int[] stack = new int[1024];        // page ids, top of stack first
+        int[] priority = new int[1024];     // next use of each stack entry
+        int depth = 0;
+
+        for (int t = 0; t < trace.length(); t++) {
+            int page = distances.page(trace.getAddress(t));
+
+            // find the page in the stack
+            int k = 0;
+            while (k < depth && stack[k] != page) {
+                k++;
+            }
+            long distance = (k < depth) ? k + 1 : StackDistances.COLD;
+            if (k == depth) {
+                // first reference; the stack grows by one
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                    priority = Arrays.copyOf(priority, depth * 2);
+                }
+                depth++;
+            }
+
+            // priority pushdown: at each depth keep whichever of the carried
+            //      page and the resident one is used sooner, carry the other down
+            if (k > 0) {
+                int carry = stack[0];
+                int carryPriority = priority[0];
+                for (int i = 1; i < k; i++) {
+                    if (carryPriority < priority[i]) {
+                        int page2 = stack[i];
+                        int priority2 = priority[i];
+                        stack[i] = carry;
+                        priority[i] = carryPriority;
+                        carry = page2;
+                        carryPriority = priority2;
+                    }
+                }
+                stack[k] = carry;
+                priority[k] = carryPriority;
+            }
+            stack[0] = page;
+            priority[0] = nextUse[t];
+
+            distances.reference(page, distance, trace.isWrite(t), t);
+        }
+
+        for (int i = 0; i < depth; i++) {
+            distances.finish(stack[i], i + 1);
+        }
+
+        return distances.done();
+    }
+
+
+    /**
+     * Curve for a policy that is not a stack algorithm: one run of the shared
+     *      trace per frame count.
+     *
+     * @param trace The decoded trace.
+     * @param maxFrames The largest frame count to report.
+     * @param factory Builds an empty page table with the given number of frames.
+     * @return The curve for 1..maxFrames frames.
+     */
+    public static MissRatioCurve sweep(DecodedTrace trace, int maxFrames, IntFunction<PageTable> factory) {
+        MissRatioCurve curve = new MissRatioCurve(maxFrames);
+        for (int n = 1; n <= maxFrames; n++) {
+            PageTable table = factory.apply(n);
+            trace.replay(table);
+            curve.faults[n] = table.getNumPageFaults();
+            curve.writes[n] = table.getNumWritesToDisk();
+        }
+
+        return curve;
+    }
+
+
+    /**
+     * Writes several curves side by side as CSV, one row per frame count:
+     *
+     *      frames,&lt;name&gt;_faults,&lt;name&gt;_writes,...
+     *
+     * @param csvFile The file to create.
+     * @param names The column name of each curve.
+     * @param curves The curves, all with the same maximum frame count.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeCsv(String csvFile, String[] names, MissRatioCurve[] curves) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(csvFile)))) {
+            out.print("frames");
+            for (String name : names) {
+                out.print("," + name + "_faults," + name + "_writes");
+            }
+            out.println();
+
+            for (int n = 1; n <= curves[0].maxFrames; n++) {
+                out.print(n);
+                for (MissRatioCurve curve : curves) {
+                    out.print("," + curve.faults[n] + "," + curve.writes[n]);
+                }
+                out.println();
+            }
+        }
+    }
+
+
+    /**
+     * Turns a stream of stack distances into fault and write counts for every
+     *      frame count, using histograms and difference arrays so that each
+     *      reference is O(1) regardless of maxFrames.
+     */
+    private static class StackDistances {
+        static final long COLD = Long.MAX_VALUE;
+
+        private final MissRatioCurve curve;
+        private final long[] histogram;     // histogram[d] = gaps of distance d; maxFrames+1 = farther
+        private final long[] writeDelta;    // difference array of writes over frame counts
+        private long coldMisses;
+
+        private final FrameIndex pages = new FrameIndex(1024);
+        int numPages;
+        int[] lastTime = new int[1024];
+        long[] sinceWrite = new long[1024];  // max gap distance since the last write; -1 if none
+
+        StackDistances(MissRatioCurve curve) {
+            this.curve = curve;
+            this.histogram = new long[curve.maxFrames + 2];
+            this.writeDelta = new long[curve.maxFrames + 2];
+        }
+
+        /**
+         * @return A dense id for the given page, assigning one on first sight.
+         */
+        int page(long address) {
+            int page = pages.get(address);
+            if (page == -1) {
+                page = numPages++;
+                pages.put(address, page);
+                if (page == lastTime.length) {
+                    lastTime = Arrays.copyOf(lastTime, page * 2);
+                    sinceWrite = Arrays.copyOf(sinceWrite, page * 2);
+                }
+                lastTime[page] = -1;
+                sinceWrite[page] = -1;
+            }
+            return page;
+        }
+
+        void reference(int page, long distance, boolean write, int time) {
+            if (distance == COLD) {
+                coldMisses++;
+            } else {
+                histogram[(int) Math.min(distance, curve.maxFrames + 1)]++;
+                evicted(page, distance);
+            }
+
+            if (write) {
+                sinceWrite[page] = 0;
+            }
+            lastTime[page] = time;
+        }
+
+        /**
+         * Records that the page was pushed down to the given depth before the
+         *      end of the trace.
+         */
+        void finish(int page, long depth) {
+            evicted(page, depth);
+        }
+
+        /**
+         * A page that sank to the given depth was evicted by every frame count
+         *      below it; the dirty ones among those write it to disk.
+         */
+        private void evicted(int page, long depth) {
+            long since = sinceWrite[page];
+            if (since < 0) {
+                return;     // never written
+            }
+
+            long lo = Math.max(1, since);
+            long hi = Math.min(depth - 1, curve.maxFrames);
+            if (lo <= hi) {
+                writeDelta[(int) lo]++;
+                writeDelta[(int) hi + 1]--;
+            }
+            sinceWrite[page] = Math.max(since, depth);
+        }
+
+        MissRatioCurve done() {
+            long farther = 0;
+            long written = 0;
+            for (int n = curve.maxFrames; n >= 1; n--) {
+                // faults for n frames = cold misses + gaps deeper than n
+                farther += histogram[n + 1];
+                curve.faults[n] = coldMisses + farther;
+            }
+            for (int n = 1; n <= curve.maxFrames; n++) {
+                written += writeDelta[n];
+                curve.writes[n] = written;
+            }
+
+            return curve;
+        }
+    }
+}
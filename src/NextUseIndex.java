@@ -0,0 +1,314 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * The next-use line number of every reference in a trace, as needed by OPT.
+ *
+ * The index is computed once and saved in a sidecar file next to the trace
+ *      (&lt;tracefile&gt;.nextuse, with the page mapping's tag before the
+ *      extension when one is used). Later runs memory-map the sidecar instead of
+ *      re-reading the trace. To check that the sidecar still belongs to the
+ *      trace without reading all of it, the trace's length, modification time
+ *      and the CRC32C of its first and last megabyte must match. If only the
+ *      modification time differs (the trace was copied or touched), the
+ *      CRC32C of the whole trace, recorded when the index was built, decides.
+ *
+ *      header:  int magic, int version, long trace length, long trace mtime,
+ *               long head/tail CRC32C, long trace CRC32C, long count
+ *      entries: one int per reference
+ *
+ * Entries are line numbers, so traces of MAX_REFERENCES or more references
+ *      cannot be indexed; WindowedOptimalPageTable has no such limit.
+ */
+
+public class NextUseIndex {
+    /**
+     * Line number used for references whose page never appears again.
+     */
+    public static final int NEVER = Integer.MAX_VALUE;
+
+    /**
+     * The most references an index can hold: line numbers are ints below
+     *      NEVER, and the trace is decoded into one array while building.
+     */
+    public static final int MAX_REFERENCES = Integer.MAX_VALUE - 8;
+
+    static final String SUFFIX = ".nextuse";
+    private static final int MAGIC = 0x564D4E55;    // "VMNU"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 48;
+    private static final int FINGERPRINT_BYTES = 1 << 20;     // hashed at each end of the trace
+
+    // entries per mapped segment (2^29 ints = 2GB)
+    private static final int SEGMENT_SHIFT = 29;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final IntBuffer[] segments;
+    private final long count;
+
+    private NextUseIndex(IntBuffer[] segments, long count) {
+        this.segments = segments;
+        this.count = count;
+    }
+
+
+    /**
+     * Opens the next-use index of the given trace, building and saving the
+     *      sidecar file first if it is missing or out of date. If the sidecar
+     *      cannot be written the index is kept in memory instead.
+     *
+     * @param traceFile The trace to index.
+     * @return The trace's next-use index.
+     * @throws IOException If the trace cannot be read.
+     */
+    public static NextUseIndex open(String traceFile) throws IOException {
+        return open(traceFile, PageMapper.NONE);
+    }
+
+    /**
+     * Same as open(traceFile), for the page numbers produced by the given mapper.
+     */
+    public static NextUseIndex open(String traceFile, PageMapper mapper) throws IOException {
+        long[] fingerprint = fingerprint(traceFile);
+        String sidecar = traceFile + mapper.suffix() + SUFFIX;
+
+        NextUseIndex index = load(sidecar, traceFile, fingerprint);
+        if (index != null) {
+            return index;
+        }
+
+        int[] next = build(traceFile, mapper);
+        try {
+            save(sidecar, fingerprint, hash(traceFile), next);
+            index = load(sidecar, traceFile, fingerprint);
+        } catch (IOException ex) {
+            Logger.getLogger(NextUseIndex.class.getName()).log(Level.WARNING,
+                    "Could not save " + sidecar + "; keeping next-use index in memory", ex);
+        }
+
+        return (index != null) ? index : wrap(next);
+    }
+
+
+    /**
+     * Wraps an already computed next-use array (see buildNextUse) without
+     *      saving it anywhere, e.g. for a trace generated in memory.
+     */
+    public static NextUseIndex wrap(int[] next) {
+        return new NextUseIndex(new IntBuffer[] { IntBuffer.wrap(next) }, next.length);
+    }
+
+
+    /**
+     * @return The number of references in the trace.
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * @param line A line number (reference index) in the trace.
+     * @return The line the same page is referenced on next; NEVER if not used again.
+     */
+    public int get(long line) {
+        if (segments.length == 1) {
+            return segments[0].get((int) line);     // in-memory, or a single mapping
+        }
+        return segments[(int) (line >>> SEGMENT_SHIFT)].get((int) (line & SEGMENT_MASK));
+    }
+
+
+    /**
+     * Reads the trace once and computes its next-use array.
+     */
+    private static int[] build(String traceFile, PageMapper mapper) throws IOException {
+        long[] addresses = new long[1024];
+        int lineNum = 0;
+        try (TraceSource reader = TraceSource.open(traceFile, mapper)) {
+            while (reader.next()) {
+                if (lineNum == addresses.length) {
+                    if (lineNum == MAX_REFERENCES) {
+                        throw new IOException(String.format("%s has more than %d references, too many for "
+                                + "a next-use index; use a lookahead window (-w) instead", traceFile, MAX_REFERENCES));
+                    }
+                    addresses = Arrays.copyOf(addresses, (int) Math.min(2L * lineNum, MAX_REFERENCES));
+                }
+                addresses[lineNum++] = reader.getAddress();
+            }
+        }
+
+        return buildNextUse(addresses, lineNum);
+    }
+
+
+    /**
+     * Walks the trace backwards once, remembering the most recent line each
+     *      page was seen on, to find the next reference of every line.
+     *
+     * @param addresses The page referenced on each line of the trace.
+     * @param length The number of lines in the trace.
+     * @return The next-use line number of every line; NEVER if not used again.
+     */
+    static int[] buildNextUse(long[] addresses, int length) {
+        int[] next = new int[length];
+        FrameIndex lastSeen = new FrameIndex(1024);
+
+        for (int line = length - 1; line >= 0; line--) {
+            int seen = lastSeen.get(addresses[line]);
+            next[line] = (seen == -1) ? NEVER : seen;
+            lastSeen.put(addresses[line], line);
+        }
+
+        return next;
+    }
+
+
+    /**
+     * Identifies a trace file without reading all of it.
+     *
+     * @return The file's length, modification time and the CRC32C of its first and last megabyte.
+     */
+    private static long[] fingerprint(String traceFile) throws IOException {
+        CRC32C crc = new CRC32C();
+        long length;
+        try (FileChannel channel = FileChannel.open(Paths.get(traceFile), StandardOpenOption.READ)) {
+            length = channel.size();
+            long head = Math.min(FINGERPRINT_BYTES, length);
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, head));
+            long tail = Math.max(head, length - FINGERPRINT_BYTES);
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, tail, length - tail));
+        }
+
+        return new long[] { length, new File(traceFile).lastModified(), crc.getValue() };
+    }
+
+    /**
+     * @return The CRC32C of the whole trace file.
+     */
+    private static long hash(String traceFile) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(Paths.get(traceFile), StandardOpenOption.READ)) {
+            long length = channel.size();
+            for (long offset = 0; offset < length; offset += Integer.MAX_VALUE) {
+                long chunk = Math.min(Integer.MAX_VALUE, length - offset);
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, offset, chunk));
+            }
+        }
+
+        return crc.getValue();
+    }
+
+
+    /**
+     * Maps an existing sidecar file.
+     *
+     * @return The index, or null if the sidecar is missing or belongs to other trace contents.
+     */
+    private static NextUseIndex load(String sidecar, String traceFile, long[] fingerprint) throws IOException {
+        if (!new File(sidecar).isFile()) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(sidecar), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return null;
+            }
+            long length = header.getLong();
+            long modified = header.getLong();
+            long headTail = header.getLong();
+            long crc = header.getLong();
+            long count = header.getLong();
+            if (length != fingerprint[0] || headTail != fingerprint[2]
+                    || count > MAX_REFERENCES || channel.size() < HEADER_SIZE + count * 4) {
+                return null;
+            }
+            if (modified != fingerprint[1]) {
+                if (crc != hash(traceFile)) {
+                    return null;
+                }
+                touch(sidecar, fingerprint[1]);
+            }
+
+            // mappings stay valid after the channel is closed
+            IntBuffer[] segments = new IntBuffer[(int) ((count + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long first = (long) i << SEGMENT_SHIFT;
+                long entries = Math.min(1L << SEGMENT_SHIFT, count - first);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + first * 4, entries * 4).asIntBuffer();
+            }
+
+            return new NextUseIndex(segments, count);
+        }
+    }
+
+
+    /**
+     * Records the trace's new modification time once its contents are known
+     *      to be unchanged, so the next run can skip the full hash again.
+     */
+    private static void touch(String sidecar, long modified) {
+        try (FileChannel channel = FileChannel.open(Paths.get(sidecar), StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(8);
+            buffer.putLong(modified).flip();
+            channel.write(buffer, 16);
+        } catch (IOException ex) {
+            // read-only; the full hash is simply checked again next time
+        }
+    }
+
+
+    /**
+     * Writes a sidecar file for the given trace fingerprint, hash and next-use array.
+     */
+    private static void save(String sidecar, long[] fingerprint, long crc, int[] next) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(sidecar), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(fingerprint[0]);
+            buffer.putLong(fingerprint[1]);
+            buffer.putLong(fingerprint[2]);
+            buffer.putLong(crc);
+            buffer.putLong(next.length);
+
+            for (int i = 0; i < next.length; i++) {
+                if (!buffer.hasRemaining()) {
+                    drain(channel, buffer);
+                }
+                buffer.putInt(next[i]);
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Frame store whose page and last-used columns live outside the Java heap,
+ *      so tens of millions of frames cost the collector nothing. The columns
+ *      are either direct buffers or, given a directory, memory-mapped
+ *      temporary files there that the OS can page out to disk.
+ *
+ *      A buffer holds at most 2G bytes, so each column is split into segments
+ *      of 2^24 frames.
+ */
+
+public class OffHeapFrameStore extends FrameStore {
+    private static final int SEGMENT_SHIFT = 24;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final LongBuffer[] pages;
+    private final LongBuffer[] lastUsed;
+
+    /**
+     * @param numFrames The number of page frames in RAM.
+     * @param directory Where to put the backing files; null for direct memory.
+     */
+    public OffHeapFrameStore(int numFrames, String directory) {
+        super(numFrames);
+        try {
+            pages = allocate(numFrames, directory);
+            lastUsed = allocate(numFrames, directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map frame store in " + directory, e);
+        }
+    }
+
+
+    /**
+     * Allocates one column of the given length, zero filled.
+     */
+    private static LongBuffer[] allocate(int numFrames, String directory) throws IOException {
+        LongBuffer[] segments = new LongBuffer[(numFrames + SEGMENT_MASK) >>> SEGMENT_SHIFT];
+        for (int i = 0; i < segments.length; i++) {
+            long bytes = (long) Math.min(1 << SEGMENT_SHIFT, numFrames - (i << SEGMENT_SHIFT)) * Long.BYTES;
+            ByteBuffer buffer;
+            if (directory == null) {
+                buffer = ByteBuffer.allocateDirect((int) bytes);
+            } else {
+                Path file = File.createTempFile("frames", ".tmp", new File(directory)).toPath();
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    // mappings stay valid after the channel is closed and the file is gone
+                    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+                }
+                if (!file.toFile().delete()) {
+                    file.toFile().deleteOnExit();
+                }
+            }
+            segments[i] = buffer.order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+
+        return segments;
+    }
+
+
+    @Override
+    public long getAddress(int frame) {
+        return pages[frame >>> SEGMENT_SHIFT].get(frame & SEGMENT_MASK);
+    }
+
+    @Override
+    protected void putAddress(int frame, long address) {
+        pages[frame >>> SEGMENT_SHIFT].put(frame & SEGMENT_MASK, address);
+    }
+
+    @Override
+    public long getLastUsed(int frame) {
+        return lastUsed[frame >>> SEGMENT_SHIFT].get(frame & SEGMENT_MASK);
+    }
+
+    @Override
+    public void setLastUsed(int frame, long timestamp) {
+        lastUsed[frame >>> SEGMENT_SHIFT].put(frame & SEGMENT_MASK, timestamp);
+    }
+}
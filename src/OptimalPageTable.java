@@ -1,235 +1,219 @@
-
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.io.UncheckedIOException;
 
 /**
  *
  * @author Joe Meszar
  * CS1550 Fall 2016
  * VM Simulator: Page Replacement Algorithms
- * 
+ *
  */
 
-public class OptimalPageTable {
+public class OptimalPageTable implements PageTable {
+    /**
+     * nextUse.get(i) - the line number at which the page referenced on line i is
+     *      referenced again, or NEVER if line i is its last reference.
+     */
+    NextUseIndex nextUse;
+    FrameStore frames;
+    FrameIndex index;
+
     /**
-     * Key - String value to hold memory address
-     * Value - A LinkedList object holding the line-number(s) of the memory address
+     * Resident frames keyed by the next line number their page is used on,
+     *      so the top of the heap is always the page used farthest from now.
      */
-    HashMap<String, LinkedList<Integer>> map;
-    OptimalPageFrame[] frames;
+    IndexedMaxHeap victims;
 
     private int activeFrames;
-    private int pageFaults;
-    private int diskWrites;
-    private int lineNumber;
-    
+    private long pageFaults;
+    private long diskWrites;
+    private long lineNumber;
+    private PageEventListener listener;
+
     public OptimalPageTable(int numFrames, String traceFile) {
-        
-        frames = new OptimalPageFrame[numFrames];
-        for (int i=0; i < numFrames; i++) {
-            frames[i] = new OptimalPageFrame();
-        }
-        
-        map = new HashMap<String, LinkedList<Integer>>();
-        
+        this(numFrames, traceFile, PageMapper.NONE);
+    }
+
+    public OptimalPageTable(int numFrames, String traceFile, PageMapper mapper) {
+        this(numFrames, traceFile, mapper, FrameStore.HEAP);
+    }
+
+    public OptimalPageTable(int numFrames, String traceFile, PageMapper mapper, String backend) {
+        this(numFrames, openNextUse(traceFile, mapper), backend);
+    }
+
+    public OptimalPageTable(int numFrames, NextUseIndex nextUse) {
+        this(numFrames, nextUse, FrameStore.HEAP);
+    }
+
+    /**
+     * Builds an OPT table from an already opened next-use index, so that many
+     *      tables over the same trace can share it.
+     *
+     * @param backend Where the frame store keeps its columns (see FrameStore.create).
+     */
+    public OptimalPageTable(int numFrames, NextUseIndex nextUse, String backend) {
+
+        frames = FrameStore.create(numFrames, backend);
+        index = new FrameIndex(numFrames);
+        victims = new IndexedMaxHeap(numFrames);
+
         this.activeFrames = 0;
         this.pageFaults = 0;
         this.diskWrites = 0;
         this.lineNumber = 0;
-        
-        // build the hashmap using the tracefile
-        File file = new File(traceFile);
-        BufferedReader reader = null;
-        try {
-            reader = new BufferedReader(new FileReader(file));
-        } catch (FileNotFoundException ex) {
-            Logger.getLogger(OptimalPageTable.class.getName()).log(Level.SEVERE, null, ex);
-        }
+        this.nextUse = nextUse;
+    }
 
-        String line, address;
-        int lineNum = 0;
+    /**
+     * Maps (building on first use) the next-use index of the tracefile.
+     *
+     * @throws UncheckedIOException If the trace cannot be read or is too large to index.
+     */
+    private static NextUseIndex openNextUse(String traceFile, PageMapper mapper) {
         try {
-            while ((line = reader.readLine()) != null) {
-                // get the memory address
-                address = line.split(" ")[0];
-                
-                // get the LinkedList within this map's address location
-                LinkedList<Integer> lineNumbers = map.get(address);
-                
-                // make sure the LinkedList exists; create if not
-                if (lineNumbers == null) {
-                    lineNumbers = new LinkedList<Integer>();
-                    map.put(address, lineNumbers);
-                }
-                
-                // put the line number for this address
-                lineNumbers.add(lineNum);
-                
-                // increase line number
-                lineNum++;
-            }
+            return NextUseIndex.open(traceFile, mapper);
         } catch (IOException ex) {
-            Logger.getLogger(OptimalPageTable.class.getName()).log(Level.SEVERE, null, ex);
+            throw new UncheckedIOException(ex);
         }
-        
-        lineNum = 0;
     }
-    
-    public int getNumPageFaults() {
+
+    @Override
+    public long getNumPageFaults() {
         return this.pageFaults;
     }
-    public int getNumWritesToDisk() {
+    @Override
+    public long getNumWritesToDisk() {
         return this.diskWrites;
     }
-    
-    
+    @Override
+    public void setPageEventListener(PageEventListener listener) {
+        this.listener = listener;
+    }
+
+
     /**
-     * Using the aging counter bits, look for the Least Recently Used one, 
-     *      evict it, and insert the new frame.
+     * Look for the resident page that will be referenced LATER THAN ALL OTHERS
+     *      (or never again), evict it, and insert the new frame.
      */
-    private int replace(String address) {
+    private int replace(long address) {
         // first search if this frame exists already
         int frameLocation = search(address);
 
-        if ((frameLocation == -1) && (activeFrames < frames.length)) {
+        // line number at which this address is used next
+        int next = (nextUse != null && lineNumber < nextUse.size())
+                ? nextUse.get(lineNumber) : NextUseIndex.NEVER;
+
+        if ((frameLocation == -1) && (activeFrames < frames.size())) {
             // still have open frames to use; add this new frame
-            
+
             frameLocation = activeFrames;   // frame to use is this empty one
             activeFrames++;                 // active frames goes up
-            
+
             // update total number of page faults
             pageFaults++;
-            
+
             // add frame
-            frames[frameLocation].setAddress(address);
-            
+            frames.setAddress(frameLocation, address);
+            index.put(address, frameLocation);
+
         } else if (frameLocation == -1) {
-            // frame not currently loaded into page; must evict
-            frameLocation = 0; // default if nothing found
-            
-            // find the frame in table that will be referenced
-            //      LATER THAN ALL OTHERS currently in the table
-            int frameAddress;
-            int oldestFromNow = -1;
-            LinkedList<Integer> lineNums;
-            boolean neverUsedAgain;
-            for (int frameNum=0; frameNum < frames.length; frameNum++) {
-                // get the linked-list for this address
-                lineNums = map.get(frames[frameNum].getAddress());
-                
-                // step through this linked-list and find the next
-                //      line number that occurs AFTER the current
-                //      line number. Keep the one farthest away
-                neverUsedAgain = true;
-                for (int num : lineNums) {
-                    if (num > this.lineNumber) {
-                        // now compare this against the other addresses
-                        //      and store reference to the one FARTHEST away
-                        if (num > oldestFromNow) { 
-                            oldestFromNow = num;
-                            frameLocation = frameNum; // store the frame's location in the table
-                        }
-
-                        // this frame is used again after this line number
-                        neverUsedAgain = false;
-                        break;
-                    }
-                }
-                
-                if (neverUsedAgain) {
-                    // remove this frame as it's never used again
-                    frameLocation = frameNum;
-                    break;
-                }
-            }
-            
+            // frame not currently loaded into page; the top of the heap is
+            //      the frame referenced LATER THAN ALL OTHERS (or never again)
+            frameLocation = victims.peek();
+
+            // update total number of page faults
+            pageFaults++;
+
             // evict the page farthest away, see if dirty first
-            if (frames[frameLocation].isDirty()) {
+            if (frames.isDirty(frameLocation)) {
                 diskWrites++;
             }
-            
-            // add the new frame to the hashmap
-            frames[frameLocation].setAddress(address);
-            
+            if (listener != null) {
+                listener.pageEvicted(frames.getAddress(frameLocation), frames.isDirty(frameLocation));
+            }
+
+            // add the new frame to the index
+            index.remove(frames.getAddress(frameLocation));
+            index.put(address, frameLocation);
+            frames.setAddress(frameLocation, address);
+
+            // default to not being dirty (will change in Write function if needed)
+            frames.isDirty(frameLocation, false);
+
         } else {
-            // frame currently exists, do nothing   
+            // frame currently exists, only its next use changes
         }
 
+        victims.put(frameLocation, next);
+
         // increase line number
         lineNumber++;
-        
+
         return frameLocation; // return the newly used frame's location
     }
-    
-    
-    /**
-     * Mimics the updating of a page frame.
-     * 
-     * @param frame The frame number to update.
-     * @param address The new address to store in this frame.
-     */
-    private void updatePageFrame(int frame, String address) {
-        frames[frame].setAddress(address);
-    }
-    
-    
+
+
     /**
-     * Searches the RAM array for the given address and returns its location if found.
-     * 
+     * Looks up the given address in the frame index and returns its location if found.
+     *
      * @param address The memory address to search for.
      * @return The location of the referenced memory address in RAM; otherwise -1.
      */
-    private int search(String address) {
-        int frameLocation = -1;
-        for (int i=0; i<activeFrames; i++) {
-            if (frames[i].equalsAddress(address)) {
-                frameLocation = i;
-            }
-        }
-        
-        return frameLocation;
+    private int search(long address) {
+        return index.get(address);
     }
-    
-    
+
+
     /**
      * Looks into the ClockRAM structure for the given frame. If it exists, then
      *      the frame is updated to be referenced; otherwise this frame will be placed
      *      within the structure and marked as referenced.
-     * 
+     *
      * @param address The new/existing page frame address to update as referenced.
      */
-    public void read(String address) {
-        replace(address);   // insert / update / replace frame
+    @Override
+    public void read(long address) {
+        reference(address, false);
     }
 
-    
+
     /**
      * Looks into the ClockRAM structure for the given frame and if it exists, then
      *      the frame is updated to be referenced AND it's dirty bit is set to reflect
      *      that this page frame no longer corresponds with data that is written to disk
      *      and it must be written back to disk for the changes to be effective.
-     * 
+     *
      *      If the page frame does not exist, then this frame will be placed within the
      *      ClockRAM structure with its referenced bit and dirty bit set.
-     *      
+     *
      * @param address The new/existing page frame name to update as dirty.
      */
-    public void write(String address) {
+    @Override
+    public void write(long address) {
+        reference(address, true);
+    }
+
+    @Override
+    public void access(long[] pages, boolean[] writes, int length) {
+        for (int i = 0; i < length; i++) {
+            reference(pages[i], writes[i]);
+        }
+    }
+
+    /**
+     * Loads (or keeps) the given page, marking it dirty for a write.
+     */
+    private void reference(long address, boolean isDirty) {
         int frameLocation = replace(address);   // insert / update / replace frame
-        frames[frameLocation].isDirty(true);    // mark dirty because this is a write
+        if (isDirty) {
+            frames.isDirty(frameLocation, true);    // mark dirty because this is a write
+        }
     }
-    
+
     @Override
     public String toString() {
-        return String.format("FRAMES: %s\nACTIVE: %d\nPAGE FAULTS: %d\nDISK WRITES: %d", 
-                Arrays.toString(frames), this.activeFrames, this.pageFaults, this.diskWrites);
+        return String.format("FRAMES: %s\nACTIVE: %d\nPAGE FAULTS: %d\nDISK WRITES: %d",
+                frames, this.activeFrames, this.pageFaults, this.diskWrites);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,209 @@
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Models an asynchronous page cleaner in front of the swap device. Instead of
+ *      being written to disk during the fault, dirty pages evicted (or cleaned
+ *      in place) by the wrapped table go onto a write-back queue. A background
+ *      flusher writes up to batchSize queued pages every flushInterval
+ *      references, oldest first.
+ *
+ *      A page that is queued again before its earlier write went out is
+ *      coalesced into that write. A dirty eviction that finds the queue full
+ *      stalls the fault: one batch is flushed to make room and the victim is
+ *      written with the fault, so listeners further out see a dirty eviction
+ *      queued behind that batch. Clean evictions never wait on the queue.
+ */
+
+public class PageCleaner implements PageTable, PageEventListener {
+    private final PageTable table;
+    private PageEventListener listener;
+
+    private final int batchSize;
+    private final int flushInterval;
+
+    // write-back queue: a ring of page numbers plus an index of what is in it
+    private final long[] queue;
+    private final FrameIndex queued;
+    private int head;
+    private int depth;
+
+    private long references;
+    private long depthTotal;
+    private int maxDepth;
+    private long requests;
+    private long coalesced;
+    private long stalls;
+    private long batches;
+    private long diskWrites;
+
+    /**
+     * @param table The page table whose write-backs go through the cleaner.
+     * @param capacity The most pages the write-back queue holds.
+     * @param batchSize The most pages written per flush.
+     * @param flushInterval The number of references between background flushes.
+     */
+    public PageCleaner(PageTable table, int capacity, int batchSize, int flushInterval) {
+        if (capacity < 1 || batchSize < 1 || flushInterval < 1) {
+            throw new IllegalArgumentException("Cleaner capacity, batch size and interval must be positive");
+        }
+        this.table = table;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.queue = new long[capacity];
+        this.queued = new FrameIndex(capacity);
+
+        table.setPageEventListener(this);
+    }
+
+    /**
+     * @return The page table this cleaner wraps.
+     */
+    public PageTable getPageTable() {
+        return this.table;
+    }
+
+
+    @Override
+    public void read(long address) {
+        table.read(address);
+        tick();
+    }
+
+    @Override
+    public void write(long address) {
+        table.write(address);
+        tick();
+    }
+
+    @Override
+    public long getNumPageFaults() {
+        return table.getNumPageFaults();
+    }
+
+    /**
+     * @return Pages written to disk, plus the ones still queued; coalesced writes count once.
+     */
+    @Override
+    public long getNumWritesToDisk() {
+        return this.diskWrites + this.depth;
+    }
+
+    @Override
+    public void setPageEventListener(PageEventListener listener) {
+        this.listener = listener;
+    }
+
+    public long getNumWriteRequests() {
+        return this.requests;
+    }
+    public long getNumCoalescedWrites() {
+        return this.coalesced;
+    }
+    public long getNumStalls() {
+        return this.stalls;
+    }
+    public long getNumBatches() {
+        return this.batches;
+    }
+    public int getMaxQueueDepth() {
+        return this.maxDepth;
+    }
+    public double getMeanQueueDepth() {
+        return (references == 0) ? 0 : (double) depthTotal / references;
+    }
+
+
+    /**
+     * Queues the write-back of a dirty victim. Listeners further out see a
+     *      clean eviction, followed by a background write once it is flushed;
+     *      or, if the queue is full, a dirty eviction that waits on a flush.
+     */
+    @Override
+    public void pageEvicted(long address, boolean dirty) {
+        boolean stalled = false;
+        if (dirty && !enqueue(address)) {
+            // the victim cannot be dropped until the queue drains
+            stalls++;
+            flush();
+            diskWrites++;
+            stalled = true;
+        }
+        if (listener != null) {
+            listener.pageEvicted(address, stalled);
+        }
+    }
+
+    @Override
+    public void pageCleaned(long address) {
+        if (!enqueue(address)) {
+            flush();
+            enqueue(address);
+        }
+    }
+
+
+    /**
+     * Queues a write-back of the page, merging it with one already queued.
+     *
+     * @return False if the queue was full and nothing was done.
+     */
+    private boolean enqueue(long address) {
+        if (queued.get(address) != -1) {
+            requests++;
+            coalesced++;
+            return true;
+        }
+        if (depth == queue.length) {
+            return false;
+        }
+
+        requests++;
+        queue[(head + depth) % queue.length] = address;
+        queued.put(address, 1);
+        depth++;
+        maxDepth = Math.max(maxDepth, depth);
+        return true;
+    }
+
+
+    /**
+     * Writes the oldest batchSize queued pages to disk as one batch.
+     */
+    private void flush() {
+        int count = Math.min(batchSize, depth);
+        if (count == 0) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            queued.remove(queue[head]);
+            if (listener != null) {
+                listener.pageCleaned(queue[head]);
+            }
+            head = (head + 1) % queue.length;
+        }
+        depth -= count;
+        diskWrites += count;
+        batches++;
+    }
+
+
+    /**
+     * One reference has passed; runs the background flusher when it is due.
+     */
+    private void tick() {
+        references++;
+        depthTotal += depth;
+        if (references % flushInterval == 0) {
+            flush();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QUEUED: %d\nWRITES: %d\nCOALESCED: %d\nSTALLS: %d\nBATCHES: %d\n%s",
+                this.depth, this.diskWrites, this.coalesced, this.stalls, this.batches, table);
+    }
+}
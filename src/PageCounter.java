@@ -0,0 +1,69 @@
+import java.util.Arrays;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Counts how often each page (or region) number is added, e.g. to find the
+ *      distinct pages of a trace or how many of them fall in each huge-page
+ *      region. Keys are also kept in the order they were first added.
+ */
+
+public class PageCounter {
+    private final FrameIndex counts;    // key -> count
+    private long[] order;               // distinct keys, in order of first add
+
+    public PageCounter(int expected) {
+        counts = new FrameIndex(expected);
+        order = new long[Math.max(2, expected)];
+    }
+
+
+    /**
+     * Counts one more occurrence of the key.
+     *
+     * @param key The page or region number.
+     * @return Its count so far, including this one; 1 the first time.
+     */
+    public int add(long key) {
+        int count = counts.get(key) + 1;    // -1 if absent
+        if (count == 0) {
+            count = 1;
+            int size = counts.size();
+            if (size == order.length) {
+                order = Arrays.copyOf(order, size * 2);
+            }
+            order[size] = key;
+        }
+        counts.put(key, count);
+
+        return count;
+    }
+
+
+    /**
+     * @param key The page or region number.
+     * @return How often it was added; 0 if never.
+     */
+    public int get(long key) {
+        return Math.max(0, counts.get(key));
+    }
+
+
+    /**
+     * @return The number of distinct keys added.
+     */
+    public int size() {
+        return counts.size();
+    }
+
+    /**
+     * @param i A number from 0 to size() - 1.
+     * @return The i-th distinct key, in order of first add.
+     */
+    public long key(int i) {
+        return order[i];
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Told by a page table when pages leave memory or are written back, so that
+ *      layers stacked on a table (write-back cleaners, TLBs, ...) can follow along.
+ *      A dirty eviction means the fault must wait for the page to be written.
+ */
+
+public interface PageEventListener {
+
+    /**
+     * A resident page was evicted to make room for another.
+     *
+     * @param address The virtual page number that was evicted.
+     * @param dirty True if the page must be written to disk first.
+     */
+    void pageEvicted(long address, boolean dirty);
+
+    /**
+     * A page was written back to disk without an eviction waiting on it:
+     *      cleaned in place while staying resident, or flushed in the background.
+     *
+     * @param address The virtual page number that was written back.
+     */
+    default void pageCleaned(long address) {
+    }
+}
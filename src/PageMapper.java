@@ -0,0 +1,235 @@
+import java.io.IOException;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Turns the byte addresses of a trace into the page numbers the page tables
+ *      work with: the address shifted right by log2 of the page size.
+ *
+ * In mixed mode a pre-pass over the trace finds every huge-page-sized region
+ *      in which at least threshold distinct base pages are touched; those
+ *      regions are mapped by a single huge page each (tagged with the HUGE bit
+ *      so they never collide with base page numbers), everything else by
+ *      base pages. A huge page's number is in huge pages, not base pages.
+ */
+
+public class PageMapper {
+    /**
+     * Set in the page number of every huge page.
+     */
+    public static final long HUGE = Long.MIN_VALUE;
+
+    /**
+     * Uses the trace's numbers as they are, as before page sizes were configurable.
+     */
+    public static final PageMapper NONE = new PageMapper(0, 0, null, 0);
+
+    private final int pageShift;
+    private final int hugeShift;
+    private final PageCounter hugeRegions;  // promoted regions; null unless mixed
+    private final int threshold;
+
+    private long basePages;         // distinct base pages in the trace (mixed mode)
+    private long coveredPages;      // of those, how many fall in huge pages
+
+    private PageMapper(int pageShift, int hugeShift, PageCounter hugeRegions, int threshold) {
+        this.pageShift = pageShift;
+        this.hugeShift = hugeShift;
+        this.hugeRegions = hugeRegions;
+        this.threshold = threshold;
+    }
+
+
+    /**
+     * @param pageSize The page size in bytes; a power of two.
+     * @return A mapper that only uses pages of that size.
+     */
+    public static PageMapper of(long pageSize) {
+        return new PageMapper(shift(pageSize), 0, null, 0);
+    }
+
+
+    /**
+     * Reads the trace once to pick the regions that get a huge page.
+     *
+     * @param traceFile The trace to plan for.
+     * @param pageSize The base page size in bytes; a power of two.
+     * @param hugeSize The huge page size in bytes; a larger power of two.
+     * @param threshold Distinct base pages a region needs to get a huge page.
+     * @return A mixed base/huge page mapper for this trace.
+     * @throws IOException If the trace cannot be read.
+     */
+    public static PageMapper mixed(String traceFile, long pageSize, long hugeSize, int threshold) throws IOException {
+        int pageShift = shift(pageSize);
+        int hugeShift = shift(hugeSize);
+        if (hugeShift <= pageShift) {
+            throw new IllegalArgumentException("Huge pages must be larger than base pages");
+        }
+
+        // distinct base pages touched in each region
+        PageCounter pages = new PageCounter(1024);
+        PageCounter regions = new PageCounter(1024);
+        try (TraceSource reader = TraceSource.open(traceFile, of(pageSize))) {
+            while (reader.next()) {
+                long page = reader.getAddress();
+                if (pages.add(page) == 1) {
+                    regions.add(page >>> (hugeShift - pageShift));
+                }
+            }
+        }
+
+        PageMapper mapper = new PageMapper(pageShift, hugeShift, new PageCounter(1024), threshold);
+        mapper.basePages = pages.size();
+        for (int i = 0; i < regions.size(); i++) {
+            long region = regions.key(i);
+            int count = regions.get(region);
+            if (count >= threshold) {
+                mapper.hugeRegions.add(region);
+                mapper.coveredPages += count;
+            }
+        }
+
+        return mapper;
+    }
+
+
+    /**
+     * Parses a size in bytes with an optional K, M or G suffix (powers of 1024).
+     */
+    public static long parseSize(String text) {
+        long unit = 1;
+        switch (Character.toUpperCase(text.charAt(text.length() - 1))) {
+            case 'K':   unit = 1L << 10; break;
+            case 'M':   unit = 1L << 20; break;
+            case 'G':   unit = 1L << 30; break;
+        }
+        String digits = (unit == 1) ? text : text.substring(0, text.length() - 1);
+        return Long.parseLong(digits) * unit;
+    }
+
+    private static int shift(long pageSize) {
+        if (pageSize <= 0 || Long.bitCount(pageSize) != 1) {
+            throw new IllegalArgumentException("Page size must be a power of two");
+        }
+        return Long.numberOfTrailingZeros(pageSize);
+    }
+
+
+    /**
+     * @param address A byte address from the trace.
+     * @return The number of the page holding it; HUGE is set for huge pages.
+     */
+    public long map(long address) {
+        if (hugeRegions != null) {
+            long region = address >>> hugeShift;
+            if (hugeRegions.get(region) != 0) {
+                return region | HUGE;
+            }
+        }
+        return address >>> pageShift;
+    }
+
+
+    public boolean isMixed() {
+        return hugeRegions != null;
+    }
+
+    public long getPageSize() {
+        return 1L << pageShift;
+    }
+
+    public long getHugePageSize() {
+        return 1L << hugeShift;
+    }
+
+    /**
+     * @return The number of huge pages; 0 unless mixed.
+     */
+    public int getNumHugePages() {
+        return (hugeRegions == null) ? 0 : hugeRegions.size();
+    }
+
+    /**
+     * @return The distinct base pages the trace touches (mixed mode only).
+     */
+    public long getNumBasePages() {
+        return basePages;
+    }
+
+    /**
+     * @return The distinct pages the tables see: base pages outside huge pages, plus huge pages.
+     */
+    public long getNumMappedPages() {
+        return basePages - coveredPages + getNumHugePages();
+    }
+
+
+    /**
+     * @return A tag for files derived from a trace through this mapper; empty for NONE.
+     */
+    String suffix() {
+        if (this == NONE) {
+            return "";
+        }
+        if (hugeRegions == null) {
+            return ".p" + pageShift;
+        }
+        return ".p" + pageShift + "h" + hugeShift + "t" + threshold;
+    }
+
+
+    /**
+     * Maps every address a trace source decodes. The mapped source's
+     *      getPageSize() is this mapper's base page size; numbers with HUGE set
+     *      are in huge pages (getHugePageSize()) instead.
+     *
+     * @param source The trace to read from; not itself mapped.
+     * @param sourcePageSize The page size the source's numbers are already in (1 for byte addresses).
+     * @return The mapped trace.
+     * @throws IOException If the source's pages are larger than this mapper's base pages.
+     */
+    TraceSource wrap(TraceSource source, long sourcePageSize) throws IOException {
+        int sourceShift = shift(sourcePageSize);
+        if (sourceShift > pageShift) {
+            source.close();
+            throw new IOException(String.format("Trace is stored in %d byte pages; cannot map it to %d byte pages",
+                    sourcePageSize, getPageSize()));
+        }
+
+        return new TraceSource() {
+            private long address;
+
+            @Override
+            public boolean next() throws IOException {
+                if (!source.next()) {
+                    return false;
+                }
+                address = map(source.getAddress() << sourceShift);
+                return true;
+            }
+
+            @Override
+            public long getAddress() {
+                return address;
+            }
+
+            @Override
+            public boolean isWrite() {
+                return source.isWrite();
+            }
+
+            @Override
+            public long getPageSize() {
+                return PageMapper.this.getPageSize();
+            }
+
+            @Override
+            public void close() throws IOException {
+                source.close();
+            }
+        };
+    }
+}
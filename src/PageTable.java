@@ -0,0 +1,54 @@
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * A page replacement policy fed one memory reference at a time.
+ */
+
+public interface PageTable {
+
+    /**
+     * Looks into the page table for the given page. If it exists it is marked
+     *      as referenced; otherwise it is loaded, evicting another page if needed.
+     *
+     * @param address The virtual page number being read.
+     */
+    void read(long address);
+
+    /**
+     * Same as read(), but also marks the page dirty because it was written.
+     *
+     * @param address The virtual page number being written.
+     */
+    void write(long address);
+
+    /**
+     * Runs a batch of references through the table, in order, as if each were
+     *      passed to read() or write(). The policies override this with their
+     *      own loop, so a batch costs no interface call per reference.
+     *
+     * @param pages The virtual page numbers referenced.
+     * @param writes True where the reference is a write.
+     * @param length How many leading entries of the arrays to run.
+     */
+    default void access(long[] pages, boolean[] writes, int length) {
+        for (int i = 0; i < length; i++) {
+            if (writes[i]) {
+                write(pages[i]);
+            } else {
+                read(pages[i]);
+            }
+        }
+    }
+
+    long getNumPageFaults();
+
+    long getNumWritesToDisk();
+
+    /**
+     * @param listener Told about every page this table evicts or writes back; null for none.
+     */
+    void setPageEventListener(PageEventListener listener);
+}
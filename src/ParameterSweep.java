@@ -0,0 +1,208 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Runs every combination of frame count, refresh and tau for a set of
+ *      algorithms. Each combination is an independent fork-join task that
+ *      replays the same shared, immutable DecodedTrace, so a grid uses every
+ *      core and the trace is decoded only once.
+ */
+
+public class ParameterSweep {
+
+    /**
+     * An inclusive range of integer parameter values, written lo[:hi[:step]].
+     */
+    public static class Range {
+        final int lo, hi, step;
+
+        Range(int lo, int hi, int step) {
+            if (step <= 0 || hi < lo) {
+                throw new IllegalArgumentException(String.format("Invalid range %d:%d:%d", lo, hi, step));
+            }
+            this.lo = lo;
+            this.hi = hi;
+            this.step = step;
+        }
+
+        public static Range parse(String text) {
+            String[] parts = text.split(":");
+            int lo = Integer.parseInt(parts[0]);
+            int hi = (parts.length > 1) ? Integer.parseInt(parts[1]) : lo;
+            int step = (parts.length > 2) ? Integer.parseInt(parts[2]) : 1;
+            return new Range(lo, hi, step);
+        }
+
+        public int first() {
+            return lo;
+        }
+
+        public boolean isSingle() {
+            return lo == hi;
+        }
+
+        public int[] values() {
+            int[] values = new int[(hi - lo) / step + 1];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = lo + i * step;
+            }
+            return values;
+        }
+    }
+
+
+    /**
+     * One grid point and, once run, its results. Parameters an algorithm does
+     *      not use are left at -1.
+     */
+    static class Config {
+        final String algorithm;
+        final int frames, refresh, tau;
+        long faults, writes;
+
+        Config(String algorithm, int frames, int refresh, int tau) {
+            this.algorithm = algorithm;
+            this.frames = frames;
+            this.refresh = refresh;
+            this.tau = tau;
+        }
+    }
+
+
+    private final DecodedTrace trace;
+    private final NextUseIndex nextUse;
+    private final int counterBits;
+    private final String backend;
+    private final List<Config> configs;
+
+    public ParameterSweep(DecodedTrace trace, NextUseIndex nextUse) {
+        this(trace, nextUse, AgingPageTable.DEFAULT_COUNTER_BITS, FrameStore.HEAP);
+    }
+
+    /**
+     * @param trace The decoded trace shared by every task.
+     * @param nextUse The trace's next-use index; only needed when sweeping opt.
+     * @param counterBits The counter width of every aging table.
+     * @param backend Where every task's frame store keeps its columns (see FrameStore.create).
+     */
+    public ParameterSweep(DecodedTrace trace, NextUseIndex nextUse, int counterBits, String backend) {
+        this.trace = trace;
+        this.nextUse = nextUse;
+        this.counterBits = counterBits;
+        this.backend = backend;
+        this.configs = new ArrayList<Config>();
+    }
+
+
+    /**
+     * Adds the grid points of one algorithm: frames for opt and clock,
+     *      frames x refresh for aging, frames x refresh x tau for work.
+     */
+    public void add(String algorithm, Range frames, Range refresh, Range tau) {
+        for (int n : frames.values()) {
+            switch (algorithm) {
+                case "opt":
+                case "clock":
+                    configs.add(new Config(algorithm, n, -1, -1));
+                    break;
+
+                case "aging":
+                    for (int r : refresh.values()) {
+                        configs.add(new Config(algorithm, n, r, -1));
+                    }
+                    break;
+
+                case "work":
+                    for (int r : refresh.values()) {
+                        for (int t : tau.values()) {
+                            configs.add(new Config(algorithm, n, r, t));
+                        }
+                    }
+                    break;
+
+                default:
+                    throw new IllegalArgumentException("Invalid algorithm type specified");
+            }
+        }
+    }
+
+
+    /**
+     * Runs every grid point, in parallel, on all available cores.
+     */
+    public void run() {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            pool.invoke(new SweepTask(this, 0, configs.size()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+    /**
+     * Prints one CSV row per grid point, in the order they were added.
+     */
+    public void print(PrintStream out) {
+        out.println("algorithm,frames,refresh,tau,faults,writes");
+        for (Config c : configs) {
+            out.println(String.format("%s,%d,%d,%d,%d,%d",
+                    c.algorithm, c.frames, c.refresh, c.tau, c.faults, c.writes));
+        }
+    }
+
+
+    private PageTable createPageTable(Config c) {
+        switch (c.algorithm) {
+            case "opt":     return new OptimalPageTable(c.frames, nextUse, backend);
+            case "clock":   return new ClockPageTable(c.frames, backend);
+            case "aging":   return new AgingPageTable(c.frames, c.refresh, counterBits, backend);
+            default:        return new WorkingSetClockPageTable(c.frames, c.refresh, c.tau,
+                                    WorkingSetClockPageTable.DEFAULT_MAX_WRITES_PER_SWEEP, backend);
+        }
+    }
+
+
+    /**
+     * Splits a range of grid points in half until a single point is left,
+     *      then replays the trace for it.
+     */
+    private static class SweepTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ParameterSweep sweep;
+        private final int from, to;
+
+        SweepTask(ParameterSweep sweep, int from, int to) {
+            this.sweep = sweep;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to <= from) {
+                return;
+            }
+            if (to - from == 1) {
+                Config c = sweep.configs.get(from);
+                PageTable table = sweep.createPageTable(c);
+                sweep.trace.replay(table);
+                c.faults = table.getNumPageFaults();
+                c.writes = table.getNumWritesToDisk();
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new SweepTask(sweep, from, mid), new SweepTask(sweep, mid, to));
+        }
+    }
+}
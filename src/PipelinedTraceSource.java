@@ -0,0 +1,271 @@
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Decodes a trace on a reader thread while the simulation consumes it, so
+ *      parsing and replacement overlap. The reader fills fixed-size batches of
+ *      page numbers and write flags into a ring of preallocated arrays; the
+ *      simulation takes whole batches off the other end. With one producer
+ *      and one consumer the ring only needs two counters: batches published
+ *      and batches released. Nothing is allocated per reference or per batch.
+ *
+ *      Each side records how long it waited on the other, so the statistics
+ *      show which stage is the bottleneck: the one that hardly ever waits.
+ */
+
+public class PipelinedTraceSource implements TraceSource {
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+    public static final int DEFAULT_SLOTS = 8;
+
+    private static final int SPINS = 100;
+
+    private final TraceSource source;
+    private final long[][] addresses;
+    private final boolean[][] writes;
+    private final int[] lengths;
+    private final int mask;
+    private final Thread reader;
+
+    private volatile long produced;         // batches published by the reader
+    private volatile long consumed;         // batches released by the simulation
+    private volatile boolean finished;      // the reader is done, at the end of the trace or failed
+    private volatile boolean closed;
+    private Exception failure;              // IOException or RuntimeException; published by finished
+
+    // reader side; published by finished
+    private long references;
+    private long readerNanos;
+    private long readerWaitNanos;
+
+    // simulation side
+    private long[] batchAddresses;
+    private boolean[] batchWrites;
+    private int batchLength;
+    private int position;
+    private boolean holding;                // a batch is taken and not yet released
+    private long address;
+    private boolean write;
+    private long startNanos;
+    private long endNanos;
+    private long simulatorWaitNanos;
+
+    public PipelinedTraceSource(TraceSource source) {
+        this(source, DEFAULT_BATCH_SIZE, DEFAULT_SLOTS);
+    }
+
+    /**
+     * Starts the reader thread.
+     *
+     * @param source The trace to decode; it is closed with this source.
+     * @param batchSize References per batch.
+     * @param slots Batches in the ring; a power of two.
+     */
+    public PipelinedTraceSource(TraceSource source, int batchSize, int slots) {
+        if (batchSize < 1 || slots < 1 || Integer.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("Pipeline needs a positive batch size and a power of two slots");
+        }
+        this.source = source;
+        this.addresses = new long[slots][batchSize];
+        this.writes = new boolean[slots][batchSize];
+        this.lengths = new int[slots];
+        this.mask = slots - 1;
+
+        startNanos = System.nanoTime();
+        reader = new Thread(this::produce, "trace-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+
+    /**
+     * The reader thread: decodes batch after batch until the trace ends.
+     */
+    private void produce() {
+        long start = System.nanoTime();
+        try {
+            for (long batch = 0; !closed; batch++) {
+                if (batch - consumed == lengths.length) {
+                    long waited = System.nanoTime();
+                    for (int spins = 0; batch - consumed == lengths.length && !closed; spins++) {
+                        idle(spins);
+                    }
+                    readerWaitNanos += System.nanoTime() - waited;
+                    if (closed) {
+                        break;
+                    }
+                }
+
+                int slot = (int) batch & mask;
+                long[] batchAddresses = addresses[slot];
+                boolean[] batchWrites = writes[slot];
+                int n = 0;
+                while (n < batchAddresses.length && source.next()) {
+                    batchAddresses[n] = source.getAddress();
+                    batchWrites[n] = source.isWrite();
+                    n++;
+                }
+                lengths[slot] = n;
+                references += n;
+
+                if (n > 0) {
+                    produced = batch + 1;
+                }
+                if (n < batchAddresses.length) {
+                    break;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        } finally {
+            readerNanos = System.nanoTime() - start;
+            finished = true;
+        }
+    }
+
+    private static void idle(int spins) {
+        if (spins < SPINS) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(10_000);
+        }
+    }
+
+
+    /**
+     * Releases the current batch and takes the next one.
+     *
+     * @return The number of references in the batch; 0 at the end of the trace.
+     * @throws IOException If the reader failed to decode the trace; a
+     *      RuntimeException from the reader is rethrown as it is.
+     */
+    private int nextBatch() throws IOException {
+        long batch = consumed;
+        if (holding) {
+            consumed = ++batch;
+            holding = false;
+        }
+
+        if (batch == produced) {
+            long waited = System.nanoTime();
+            for (int spins = 0; batch == produced; spins++) {
+                if (finished) {
+                    // finished is set after the last batch is published
+                    if (batch == produced) {
+                        simulatorWaitNanos += System.nanoTime() - waited;
+                        endNanos = System.nanoTime();
+                        if (failure instanceof IOException) {
+                            throw (IOException) failure;
+                        }
+                        if (failure != null) {
+                            throw (RuntimeException) failure;
+                        }
+                        batchLength = position = 0;
+                        return 0;
+                    }
+                    break;
+                }
+                idle(spins);
+            }
+            simulatorWaitNanos += System.nanoTime() - waited;
+        }
+
+        int slot = (int) batch & mask;
+        batchAddresses = addresses[slot];
+        batchWrites = writes[slot];
+        batchLength = lengths[slot];
+        position = 0;
+        holding = true;
+        return batchLength;
+    }
+
+    /**
+     * Copies out the rest of the current batch, taking the next one first if
+     *      it is used up.
+     */
+    @Override
+    public int next(long[] addresses, boolean[] writes) throws IOException {
+        if (position == batchLength && nextBatch() == 0) {
+            return 0;
+        }
+        int length = Math.min(batchLength - position, addresses.length);
+        System.arraycopy(batchAddresses, position, addresses, 0, length);
+        System.arraycopy(batchWrites, position, writes, 0, length);
+        position += length;
+        return length;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (position == batchLength) {
+            if (nextBatch() == 0) {
+                return false;
+            }
+        }
+        address = batchAddresses[position];
+        write = batchWrites[position];
+        position++;
+        return true;
+    }
+
+    @Override
+    public long getAddress() {
+        return address;
+    }
+
+    @Override
+    public boolean isWrite() {
+        return write;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        source.close();
+    }
+
+
+    /**
+     * @return References decoded by the reader (all of them once the trace is consumed).
+     */
+    public long getNumReferences() {
+        return finished ? references : 0;
+    }
+
+    /**
+     * @return Time the reader spent decoding, not counting waits for a free slot.
+     */
+    public long getReaderBusyNanos() {
+        return finished ? readerNanos - readerWaitNanos : 0;
+    }
+
+    /**
+     * @return Time the reader spent waiting for the simulation to free a slot.
+     */
+    public long getReaderWaitNanos() {
+        return finished ? readerWaitNanos : 0;
+    }
+
+    /**
+     * @return Time the simulation spent running references, not counting waits for input.
+     */
+    public long getSimulatorBusyNanos() {
+        return (endNanos == 0) ? 0 : endNanos - startNanos - simulatorWaitNanos;
+    }
+
+    /**
+     * @return Time the simulation spent waiting for the reader to fill a batch.
+     */
+    public long getSimulatorWaitNanos() {
+        return this.simulatorWaitNanos;
+    }
+}
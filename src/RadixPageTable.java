@@ -0,0 +1,394 @@
+import java.util.Arrays;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Keeps an x86-64 style 4-level radix page table (9 bits of page number per
+ *      level, 48-bit virtual addresses with 4K pages) in step with the pages
+ *      resident in the table it wraps, and counts the memory references each
+ *      page walk costs. A huge page is a leaf hugeLevels levels above the
+ *      bottom.
+ *
+ * A page-walk cache holds recently read upper-level entries, keyed by the
+ *      page number bits that select them, so a walk can start below the root.
+ *      The leaf entry is always read.
+ *
+ * Nodes are allocated on demand from one int array (512 entries each) and
+ *      freed again once empty, so a sparse address space only pays for the
+ *      nodes it touches. A non-leaf entry holds its child node + 1; a leaf
+ *      entry is -1 when present; 0 is empty.
+ */
+
+public class RadixPageTable implements PageTable, PageEventListener {
+    public static final int LEVELS = 4;
+    public static final int BITS = 9;
+    public static final String DEFAULT_WALK_CACHE = "4:4:32";
+
+    private static final int ENTRIES = 1 << BITS;
+    private static final int MASK = ENTRIES - 1;
+    private static final long MAX_PAGE = (1L << (LEVELS * BITS)) - 1;
+
+    private final PageTable table;
+    private final int hugeLevels;
+    private PageEventListener listener;
+
+    // nodes; node 0 is the root
+    private int[] entries = new int[ENTRIES * 16];
+    private int[] used = new int[16];       // non-empty entries per node
+    private int[] freeNodes = new int[16];
+    private int numFree;
+    private int numNodes = 1;               // allocated, including freed ones
+    private int liveNodes = 1;
+    private int peakNodes = 1;
+
+    private final WalkCache[] walkCache;    // walkCache[l] holds entries read at level l
+    private final long[] walkCacheHits;
+
+    private long walks;
+    private long memoryReferences;
+    private final int[] path = new int[LEVELS];
+
+    /**
+     * @param table The page table whose resident pages are mapped.
+     * @param walkCache Page-walk cache entries for each upper level, root first,
+     *      written e.g. 4:4:32; 0 disables a level.
+     * @param hugeLevels How many levels above the bottom a huge page's leaf is
+     *      (1 for 2M pages over 4K pages).
+     */
+    public RadixPageTable(PageTable table, String walkCache, int hugeLevels) {
+        if (hugeLevels < 0 || hugeLevels >= LEVELS) {
+            throw new IllegalArgumentException("Huge pages must map 1 to 3 radix levels");
+        }
+        String[] sizes = walkCache.split(":");
+        if (sizes.length != LEVELS - 1) {
+            throw new IllegalArgumentException("Page-walk cache needs a size for each of the " + (LEVELS - 1) + " upper levels");
+        }
+        this.table = table;
+        this.hugeLevels = hugeLevels;
+        this.walkCache = new WalkCache[LEVELS - 1];
+        for (int l = 0; l < LEVELS - 1; l++) {
+            this.walkCache[l] = new WalkCache(Integer.parseInt(sizes[l]));
+        }
+        this.walkCacheHits = new long[LEVELS - 1];
+
+        table.setPageEventListener(this);
+    }
+
+    /**
+     * @return The page table whose pages this radix table maps.
+     */
+    public PageTable getPageTable() {
+        return this.table;
+    }
+
+
+    @Override
+    public void read(long address) {
+        boolean present = walk(address);
+        table.read(address);
+        if (!present) {
+            map(address);
+        }
+    }
+
+    @Override
+    public void write(long address) {
+        boolean present = walk(address);
+        table.write(address);
+        if (!present) {
+            map(address);
+        }
+    }
+
+    /**
+     * Same as read(), for a reference a TLB already translated: no walk.
+     */
+    void readTranslated(long address) {
+        table.read(address);
+    }
+
+    /**
+     * Same as write(), for a reference a TLB already translated: no walk.
+     */
+    void writeTranslated(long address) {
+        table.write(address);
+    }
+
+    @Override
+    public long getNumPageFaults() {
+        return table.getNumPageFaults();
+    }
+
+    @Override
+    public long getNumWritesToDisk() {
+        return table.getNumWritesToDisk();
+    }
+
+    @Override
+    public void setPageEventListener(PageEventListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void pageEvicted(long address, boolean dirty) {
+        unmap(address);
+        if (listener != null) {
+            listener.pageEvicted(address, dirty);
+        }
+    }
+
+    @Override
+    public void pageCleaned(long address) {
+        if (listener != null) {
+            listener.pageCleaned(address);
+        }
+    }
+
+
+    /**
+     * @return The radix key of a page: huge pages are shifted up to the bits of a base page.
+     */
+    private long key(long address) {
+        long page = address & ~PageMapper.HUGE;
+        if ((address & PageMapper.HUGE) != 0) {
+            page <<= BITS * hugeLevels;
+        }
+        if (page < 0 || page > MAX_PAGE) {
+            throw new IllegalArgumentException(String.format("Page %x is outside the %d-bit radix page table "
+                    + "(48-bit addresses with -p 4K)", address, LEVELS * BITS));
+        }
+        return page;
+    }
+
+    private int leafLevel(long address) {
+        return ((address & PageMapper.HUGE) != 0) ? LEVELS - 1 - hugeLevels : LEVELS - 1;
+    }
+
+    private static int slot(int node, long key, int level) {
+        return node * ENTRIES + (int) ((key >>> (BITS * (LEVELS - 1 - level))) & MASK);
+    }
+
+    /**
+     * @return The key bits that select the entry read at the given level.
+     */
+    private static long prefix(long key, int level) {
+        return key >>> (BITS * (LEVELS - 1 - level));
+    }
+
+
+    /**
+     * Walks the table for the page, starting from the deepest level the
+     *      page-walk cache can skip to, and counts each entry read.
+     *
+     * @return True if the page is mapped.
+     */
+    private boolean walk(long address) {
+        long key = key(address);
+        int leaf = leafLevel(address);
+        walks++;
+
+        int level = 0;
+        int node = 0;
+        for (int l = leaf; l >= 1; l--) {
+            int cached = walkCache[l - 1].lookup(prefix(key, l - 1));
+            if (cached >= 0) {
+                walkCacheHits[l - 1]++;
+                level = l;
+                node = cached;
+                break;
+            }
+        }
+
+        for (; level <= leaf; level++) {
+            memoryReferences++;
+            int entry = entries[slot(node, key, level)];
+            if (level == leaf || entry == 0) {
+                return entry != 0;
+            }
+            node = entry - 1;
+            walkCache[level].insert(prefix(key, level), node);
+        }
+        return false;
+    }
+
+
+    /**
+     * Adds the page, allocating nodes on the way down as needed.
+     */
+    private void map(long address) {
+        long key = key(address);
+        int leaf = leafLevel(address);
+
+        int node = 0;
+        for (int level = 0; level < leaf; level++) {
+            int slot = slot(node, key, level);
+            if (entries[slot] == 0) {
+                int child = allocate();
+                entries[slot] = child + 1;      // entries may have moved
+                used[node]++;
+            }
+            node = entries[slot] - 1;
+        }
+
+        int slot = slot(node, key, leaf);
+        if (entries[slot] == 0) {
+            entries[slot] = -1;
+            used[node]++;
+        }
+    }
+
+
+    /**
+     * Removes the page, freeing nodes that become empty.
+     */
+    private void unmap(long address) {
+        long key = key(address);
+        int leaf = leafLevel(address);
+
+        int node = 0;
+        for (int level = 0; level < leaf; level++) {
+            path[level] = node;
+            int entry = entries[slot(node, key, level)];
+            if (entry == 0) {
+                return;     // not mapped
+            }
+            node = entry - 1;
+        }
+        path[leaf] = node;
+
+        int slot = slot(node, key, leaf);
+        if (entries[slot] == 0) {
+            return;
+        }
+        entries[slot] = 0;
+        used[node]--;
+
+        for (int level = leaf; level > 0 && used[path[level]] == 0; level--) {
+            release(path[level]);
+            entries[slot(path[level - 1], key, level - 1)] = 0;
+            used[path[level - 1]]--;
+            walkCache[level - 1].invalidate(prefix(key, level - 1));
+        }
+    }
+
+
+    private int allocate() {
+        int node;
+        if (numFree > 0) {
+            node = freeNodes[--numFree];
+        } else {
+            node = numNodes++;
+            if (numNodes > used.length) {
+                used = Arrays.copyOf(used, used.length * 2);
+                entries = Arrays.copyOf(entries, used.length * ENTRIES);
+            }
+        }
+        liveNodes++;
+        peakNodes = Math.max(peakNodes, liveNodes);
+        return node;
+    }
+
+    private void release(int node) {
+        if (numFree == freeNodes.length) {
+            freeNodes = Arrays.copyOf(freeNodes, numFree * 2);
+        }
+        freeNodes[numFree++] = node;
+        liveNodes--;
+    }
+
+
+    public long getNumWalks() {
+        return this.walks;
+    }
+
+    /**
+     * @return The page-table entries read by all walks.
+     */
+    public long getNumMemoryReferences() {
+        return this.memoryReferences;
+    }
+
+    /**
+     * @param level An upper level, 0 for the root.
+     * @return Walks that started below that level thanks to the page-walk cache.
+     */
+    public long getNumWalkCacheHits(int level) {
+        return walkCacheHits[level];
+    }
+
+    public int getNumLiveNodes() {
+        return this.liveNodes;
+    }
+
+    public int getPeakNodes() {
+        return this.peakNodes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WALKS: %d\nMEMORY REFERENCES: %d\nNODES: %d\n%s",
+                this.walks, this.memoryReferences, this.liveNodes, table);
+    }
+
+
+    /**
+     * A small fully associative LRU cache from key prefix to node.
+     */
+    private static class WalkCache {
+        private final long[] prefixes;
+        private final int[] nodes;
+        private final long[] stamps;
+        private long clock;
+
+        WalkCache(int size) {
+            prefixes = new long[size];
+            Arrays.fill(prefixes, -1);
+            nodes = new int[size];
+            stamps = new long[size];
+        }
+
+        /**
+         * @return The cached node, or -1.
+         */
+        int lookup(long prefix) {
+            for (int i = 0; i < prefixes.length; i++) {
+                if (prefixes[i] == prefix) {
+                    stamps[i] = ++clock;
+                    return nodes[i];
+                }
+            }
+            return -1;
+        }
+
+        void insert(long prefix, int node) {
+            if (prefixes.length == 0) {
+                return;
+            }
+            int victim = 0;
+            for (int i = 0; i < prefixes.length; i++) {
+                if (prefixes[i] == prefix) {
+                    victim = i;
+                    break;
+                }
+                if (stamps[i] < stamps[victim]) {
+                    victim = i;
+                }
+            }
+            prefixes[victim] = prefix;
+            nodes[victim] = node;
+            stamps[victim] = ++clock;
+        }
+
+        void invalidate(long prefix) {
+            for (int i = 0; i < prefixes.length; i++) {
+                if (prefixes[i] == prefix) {
+                    prefixes[i] = -1;
+                    stamps[i] = 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Measures the cost of read()/write() on each page table: nanoseconds and
+ *      bytes allocated per reference, for a grid of frame counts, hit ratios
+ *      and write mixes over synthetic traces, and for any recorded traces given.
+ *
+ *      java ReplacementBenchmark [-n frames,...] [-a alg,...] [-h hit,...] [-w write,...]
+ *                                [-r refresh] [-t tau] [-i iterations] [tracefile ...]
+ *
+ * Every trace is decoded into memory first, so only the page table is timed.
+ *      Each point is replayed once untimed to warm up the JIT and then timed
+ *      over the given number of iterations, each on a fresh page table.
+ */
+
+public class ReplacementBenchmark {
+    private static final long SEED = 1550;
+
+    static int[] frameCounts = { 16, 256, 4096, 65536, 1048576 };
+    static String[] algorithms = { "opt", "clock", "aging", "work" };
+    static double[] hitRatios = { 0.5, 0.9, 0.99 };
+    static double[] writeRatios = { 0.0, 0.3 };
+    static int refresh = 1024;
+    static int tau = 1024;
+    static int iterations = 3;
+    static List<String> traceFiles = new ArrayList<String>();
+
+    public static void main(String[] args) throws IOException {
+        getCommandLineArgs(args);
+
+        System.out.println("trace,algorithm,frames,hit,write,ns_per_ref,bytes_per_ref,miss_ratio");
+        for (int frames : frameCounts) {
+            for (double hit : hitRatios) {
+                for (double write : writeRatios) {
+                    DecodedTrace trace = synthetic(frames, hit, write);
+                    run("synthetic", trace, frames, String.valueOf(hit), String.valueOf(write));
+                }
+            }
+        }
+        for (String traceFile : traceFiles) {
+            DecodedTrace trace = DecodedTrace.load(traceFile);
+            for (int frames : frameCounts) {
+                run(traceFile, trace, frames, "-", "-");
+            }
+        }
+    }
+
+
+    /**
+     * Builds a trace whose working set is a hot set of the given number of
+     *      pages: each reference hits a random hot page with probability hit,
+     *      and otherwise touches a page that has never been seen before.
+     *      Cold pages push hot ones out, so the achieved miss ratio is
+     *      somewhat above 1 - hit and is reported next to every result.
+     *
+     * @param frames The size of the hot set.
+     * @param hit The probability that a reference goes to the hot set.
+     * @param write The probability that a reference is a write.
+     * @return A trace of max(2M, 4 * frames) references.
+     */
+    static DecodedTrace synthetic(int frames, double hit, double write) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        int length = Math.max(1 << 21, 4 * frames);
+        long[] addresses = new long[length];
+        boolean[] writes = new boolean[length];
+        long cold = frames;
+
+        for (int i = 0; i < length; i++) {
+            addresses[i] = (random.nextDouble() < hit) ? random.nextInt(frames) : cold++;
+            writes[i] = random.nextDouble() < write;
+        }
+
+        return DecodedTrace.of(addresses, writes);
+    }
+
+
+    /**
+     * Benchmarks every algorithm on one trace and frame count and prints a CSV row each.
+     */
+    private static void run(String name, DecodedTrace trace, int frames, String hit, String write) {
+        NextUseIndex nextUse = null;
+        for (String algorithm : algorithms) {
+            if (algorithm.equals("opt") && nextUse == null) {
+                nextUse = NextUseIndex.wrap(trace.nextUse());
+            }
+
+            // warm up
+            PageTable table = createPageTable(algorithm, frames, nextUse);
+            trace.replay(table);
+            double missRatio = (double) table.getNumPageFaults() / trace.length();
+
+            long nanos = 0;
+            long bytes = 0;
+            for (int i = 0; i < iterations; i++) {
+                table = createPageTable(algorithm, frames, nextUse);
+                long allocated = allocatedBytes();
+                long start = System.nanoTime();
+                trace.replay(table);
+                nanos += System.nanoTime() - start;
+                bytes += allocatedBytes() - allocated;
+            }
+
+            double references = (double) trace.length() * iterations;
+            System.out.println(String.format("%s,%s,%d,%s,%s,%.2f,%.3f,%.4f",
+                    name, algorithm, frames, hit, write, nanos / references,
+                    (bytes < 0) ? Double.NaN : bytes / references, missRatio));
+        }
+    }
+
+
+    private static PageTable createPageTable(String algorithm, int frames, NextUseIndex nextUse) {
+        switch (algorithm) {
+            case "opt":     return new OptimalPageTable(frames, nextUse);
+            case "clock":   return new ClockPageTable(frames);
+            case "aging":   return new AgingPageTable(frames, refresh);
+            case "work":    return new WorkingSetClockPageTable(frames, refresh, tau);
+            default:        throw new IllegalArgumentException("Invalid algorithm type specified");
+        }
+    }
+
+
+    /**
+     * @return The bytes allocated so far by this thread; -1 if the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+
+    private static void getCommandLineArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-n": // frame counts
+                    String[] n = args[++i].split(",");
+                    frameCounts = new int[n.length];
+                    for (int j = 0; j < n.length; j++) {
+                        frameCounts[j] = Integer.parseInt(n[j]);
+                    }
+                    break;
+
+                case "-a": // algorithms
+                    algorithms = args[++i].split(",");
+                    break;
+
+                case "-h": // hit ratios of the synthetic traces
+                    hitRatios = parseRatios(args[++i]);
+                    break;
+
+                case "-w": // write ratios of the synthetic traces
+                    writeRatios = parseRatios(args[++i]);
+                    break;
+
+                case "-r": // refresh (aging, work)
+                    refresh = Integer.parseInt(args[++i]);
+                    break;
+
+                case "-t": // tau (work)
+                    tau = Integer.parseInt(args[++i]);
+                    break;
+
+                case "-i": // timed iterations per point
+                    iterations = Integer.parseInt(args[++i]);
+                    break;
+
+                default: // recorded trace
+                    traceFiles.add(args[i]);
+            }
+        }
+    }
+
+    private static double[] parseRatios(String list) {
+        String[] parts = list.split(",");
+        double[] ratios = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            ratios[i] = Double.parseDouble(parts[i]);
+        }
+        return ratios;
+    }
+}
@@ -0,0 +1,58 @@
+import java.io.IOException;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Decodes a trace once and feeds every reference to a set of page tables in
+ *      lockstep, so several policies can be compared for the cost of one parse.
+ *      References are read in batches through TraceSource.next(long[], boolean[])
+ *      and handed over through PageTable.access(), so each table runs its own
+ *      loop; the tables are independent, so this gives the same results as
+ *      feeding them one reference at a time.
+ */
+
+public class Simulator {
+    public static final int BATCH_SIZE = 4096;
+
+    private final PageTable[] tables;
+    private final long[] batchAddresses = new long[BATCH_SIZE];
+    private final boolean[] batchWrites = new boolean[BATCH_SIZE];
+    private long memAccesses;
+
+    public Simulator(PageTable... tables) {
+        this.tables = tables;
+        this.memAccesses = 0;
+    }
+
+
+    /**
+     * Runs every reference in the trace through all of the page tables.
+     *
+     * @param trace The trace to simulate; it is read to the end but not closed.
+     * @return The number of memory references simulated.
+     * @throws IOException If the trace cannot be read.
+     */
+    public long run(TraceSource trace) throws IOException {
+        int length;
+        while ((length = trace.next(batchAddresses, batchWrites)) > 0) {
+            memAccesses += length;
+            for (PageTable table : tables) {
+                table.access(batchAddresses, batchWrites, length);
+            }
+        }
+
+        return memAccesses;
+    }
+
+
+    public long getNumMemAccesses() {
+        return this.memAccesses;
+    }
+
+    public PageTable[] getPageTables() {
+        return this.tables;
+    }
+}
@@ -0,0 +1,438 @@
+import java.util.SplittableRandom;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * A multi-level, set-associative TLB in front of any page table. Each level
+ *      has one array for base pages and, optionally, a separate one for huge
+ *      pages (page numbers with PageMapper.HUGE set). A lookup tries the levels
+ *      in order; a miss in all of them is a page walk, after which the page is
+ *      filled into every level. Pages the table evicts are shot down from
+ *      every level.
+ *
+ *      By default every reference is still passed on to the page table, so its
+ *      results are unchanged. In filter mode only walks, and writes to a page
+ *      the TLB holds as clean, reach the table, as with hardware that only sets
+ *      accessed and dirty bits on a walk. That is much cheaper to simulate, but
+ *      the policy then sees fewer references; OPT needs them all.
+ */
+
+public class TlbPageTable implements PageTable, PageEventListener {
+
+    /**
+     * TLB geometry, written as levels separated by commas, each
+     *      entries:ways[/hugeentries:hugeways], optionally followed by
+     *      {@literal @}lru, {@literal @}fifo or {@literal @}random. A level
+     *      without a huge-page array caches huge pages in its base array.
+     *      The number of sets (entries / ways) must be a power of two.
+     */
+    public static class Config {
+        public static final String DEFAULT = "64:4/32:4,1536:12@lru";
+
+        final int[][] levels;   // {entries, ways, hugeEntries, hugeWays} per level
+        final String policy;
+
+        Config(int[][] levels, String policy) {
+            this.levels = levels;
+            this.policy = policy;
+        }
+
+        public static Config parse(String text) {
+            String policy = "lru";
+            int at = text.indexOf('@');
+            if (at >= 0) {
+                policy = text.substring(at + 1);
+                text = text.substring(0, at);
+            }
+            switch (policy) {
+                case "lru":
+                case "fifo":
+                case "random":
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid TLB replacement policy specified");
+            }
+
+            String[] specs = text.split(",");
+            int[][] levels = new int[specs.length][];
+            for (int i = 0; i < specs.length; i++) {
+                String[] arrays = specs[i].split("/");
+                String[] base = arrays[0].split(":");
+                String[] huge = (arrays.length > 1) ? arrays[1].split(":") : new String[] { "0", "1" };
+                levels[i] = new int[] { Integer.parseInt(base[0]), Integer.parseInt(base[1]),
+                                        Integer.parseInt(huge[0]), Integer.parseInt(huge[1]) };
+            }
+            return new Config(levels, policy);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (int[] level : levels) {
+                if (text.length() > 0) {
+                    text.append(',');
+                }
+                text.append(level[0]).append(':').append(level[1]);
+                if (level[2] > 0) {
+                    text.append('/').append(level[2]).append(':').append(level[3]);
+                }
+            }
+            return text.append('@').append(policy).toString();
+        }
+    }
+
+
+    private final PageTable table;
+    private final RadixPageTable walker;    // the table, if it counts page walks
+    private final Config config;
+    private final boolean filter;
+    private PageEventListener listener;
+
+    private final TlbArray[] baseArrays;
+    private final TlbArray[] hugeArrays;    // same array as baseArrays[i] if the level has none
+
+    private int hitSlot;                    // where the last lookup found the page
+
+    private long lookups;
+    private final long[] hits;              // hits per level
+    private long walks;
+    private long dirtyWalks;                // filter mode: writes to a page held as clean
+    private long shootdowns;
+
+    /**
+     * @param table The page table behind the TLB.
+     * @param config The TLB levels and replacement policy.
+     * @param filter True to pass only walks on to the table.
+     */
+    public TlbPageTable(PageTable table, Config config, boolean filter) {
+        this.table = table;
+        this.walker = (table instanceof RadixPageTable) ? (RadixPageTable) table : null;
+        this.config = config;
+        this.filter = filter;
+
+        SplittableRandom random = new SplittableRandom(1550);
+        baseArrays = new TlbArray[config.levels.length];
+        hugeArrays = new TlbArray[config.levels.length];
+        for (int i = 0; i < config.levels.length; i++) {
+            int[] level = config.levels[i];
+            baseArrays[i] = new TlbArray(level[0], level[1], config.policy, random);
+            hugeArrays[i] = (level[2] > 0) ? new TlbArray(level[2], level[3], config.policy, random) : baseArrays[i];
+        }
+        hits = new long[config.levels.length];
+
+        table.setPageEventListener(this);
+    }
+
+    /**
+     * @return The page table behind this TLB.
+     */
+    public PageTable getPageTable() {
+        return this.table;
+    }
+
+    public Config getConfig() {
+        return this.config;
+    }
+
+
+    @Override
+    public void read(long address) {
+        int level = lookup(address);
+        if (level == baseArrays.length) {
+            table.read(address);
+            fill(address, level, false);
+            return;
+        }
+
+        fill(address, level, false);
+        if (filter) {
+            return;
+        }
+        if (walker != null) {
+            walker.readTranslated(address);     // no walk behind a TLB hit
+        } else {
+            table.read(address);
+        }
+    }
+
+    @Override
+    public void write(long address) {
+        int level = lookup(address);
+        if (level == baseArrays.length || !arrayFor(level, address).dirty[hitSlot]) {
+            if (level < baseArrays.length) {
+                // a write to a page held as clean must set the dirty bit
+                dirtyWalks++;
+            }
+            table.write(address);
+            fill(address, level, true);
+            // like any walk, one that sets the dirty bit fills the levels below too
+            for (int i = level + 1; i < baseArrays.length; i++) {
+                TlbArray array = arrayFor(i, address);
+                int slot = array.lookup(address);
+                if (slot >= 0) {
+                    array.dirty[slot] = true;
+                } else {
+                    array.insert(address, true);
+                }
+            }
+            return;
+        }
+
+        fill(address, level, true);
+        if (filter) {
+            return;
+        }
+        if (walker != null) {
+            walker.writeTranslated(address);
+        } else {
+            table.write(address);
+        }
+    }
+
+    @Override
+    public long getNumPageFaults() {
+        return table.getNumPageFaults();
+    }
+
+    @Override
+    public long getNumWritesToDisk() {
+        return table.getNumWritesToDisk();
+    }
+
+    @Override
+    public void setPageEventListener(PageEventListener listener) {
+        this.listener = listener;
+    }
+
+
+    /**
+     * An evicted page must not be reachable through the TLB any more.
+     */
+    @Override
+    public void pageEvicted(long address, boolean dirty) {
+        boolean cached = false;
+        for (int i = 0; i < baseArrays.length; i++) {
+            cached |= arrayFor(i, address).invalidate(address);
+        }
+        if (cached) {
+            shootdowns++;
+        }
+        if (listener != null) {
+            listener.pageEvicted(address, dirty);
+        }
+    }
+
+    /**
+     * A page written back is clean again, so the next write must reach the table.
+     */
+    @Override
+    public void pageCleaned(long address) {
+        for (int i = 0; i < baseArrays.length; i++) {
+            arrayFor(i, address).clean(address);
+        }
+        if (listener != null) {
+            listener.pageCleaned(address);
+        }
+    }
+
+
+    /**
+     * Looks the page up level by level; hitSlot is left at its slot.
+     *
+     * @return The first level holding the page, or the number of levels if it missed them all.
+     */
+    private int lookup(long address) {
+        lookups++;
+        for (int i = 0; i < baseArrays.length; i++) {
+            int slot = arrayFor(i, address).lookup(address);
+            if (slot >= 0) {
+                hits[i]++;
+                hitSlot = slot;
+                return i;
+            }
+        }
+        walks++;
+        return baseArrays.length;
+    }
+
+    /**
+     * Puts the page into the levels above the one it was found at (all of them
+     *      after a walk), and marks it dirty there for a write.
+     *
+     * @param level The level lookup() returned.
+     */
+    private void fill(long address, int level, boolean write) {
+        boolean dirty = write;
+        if (level < baseArrays.length) {
+            TlbArray array = arrayFor(level, address);
+            dirty |= array.dirty[hitSlot];
+            array.dirty[hitSlot] = dirty;
+        }
+        for (int i = 0; i < level; i++) {
+            arrayFor(i, address).insert(address, dirty);
+        }
+    }
+
+    private TlbArray arrayFor(int level, long address) {
+        return ((address & PageMapper.HUGE) != 0) ? hugeArrays[level] : baseArrays[level];
+    }
+
+
+    public long getNumLookups() {
+        return this.lookups;
+    }
+
+    /**
+     * @param level A TLB level, 0 for the first.
+     * @return The lookups that level answered.
+     */
+    public long getNumHits(int level) {
+        return hits[level];
+    }
+
+    public int getNumLevels() {
+        return hits.length;
+    }
+
+    /**
+     * @return Lookups that missed every level and needed a page walk.
+     */
+    public long getNumWalks() {
+        return this.walks;
+    }
+
+    /**
+     * @return Writes that hit a page the TLB held as clean.
+     */
+    public long getNumDirtyWalks() {
+        return this.dirtyWalks;
+    }
+
+    public long getNumShootdowns() {
+        return this.shootdowns;
+    }
+
+    /**
+     * @return The fraction of lookups answered by some TLB level.
+     */
+    public double getHitRate() {
+        return (lookups == 0) ? 0 : (double) (lookups - walks) / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TLB: %s\nLOOKUPS: %d\nWALKS: %d\nSHOOTDOWNS: %d\n%s",
+                config, this.lookups, this.walks, this.shootdowns, table);
+    }
+
+
+    /**
+     * One set-associative array of page numbers. A page can only live in the
+     *      set selected by its low bits. Whether a slot holds a page is kept
+     *      apart from the page number, so every long value is a valid page.
+     */
+    private static class TlbArray {
+        private static final int LRU = 0, FIFO = 1, RANDOM = 2;
+
+        final int ways;
+        final int setMask;
+        final long[] pages;
+        final boolean[] valid;
+        final long[] stamps;    // last use (lru) or fill time (fifo)
+        final boolean[] dirty;
+        final int policy;
+        final SplittableRandom random;
+        long clock;
+
+        TlbArray(int entries, int ways, String policy, SplittableRandom random) {
+            int sets = (ways > 0) ? entries / ways : 0;
+            if (ways < 1 || sets < 1 || sets * ways != entries || Integer.bitCount(sets) != 1) {
+                throw new IllegalArgumentException(String.format("Invalid TLB array %d:%d", entries, ways));
+            }
+            this.ways = ways;
+            this.setMask = sets - 1;
+            this.pages = new long[entries];
+            this.valid = new boolean[entries];
+            this.stamps = new long[entries];
+            this.dirty = new boolean[entries];
+            this.policy = policy.equals("random") ? RANDOM : policy.equals("fifo") ? FIFO : LRU;
+            this.random = random;
+        }
+
+        private int firstSlot(long page) {
+            return ((int) page & setMask) * ways;
+        }
+
+        /**
+         * @return The page's slot, or -1 if it is not cached.
+         */
+        int lookup(long page) {
+            int first = firstSlot(page);
+            for (int slot = first; slot < first + ways; slot++) {
+                if (valid[slot] && pages[slot] == page) {
+                    if (policy == LRU) {
+                        stamps[slot] = ++clock;
+                    }
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Caches the page, replacing an entry of its set if the set is full.
+         */
+        void insert(long page, boolean isDirty) {
+            int first = firstSlot(page);
+            int victim = -1;
+            for (int slot = first; slot < first + ways && victim == -1; slot++) {
+                if (!valid[slot]) {
+                    victim = slot;
+                }
+            }
+            if (victim == -1) {
+                if (policy == RANDOM) {
+                    victim = first + random.nextInt(ways);
+                } else {
+                    // lru and fifo both take the oldest stamp
+                    victim = first;
+                    for (int slot = first + 1; slot < first + ways; slot++) {
+                        if (stamps[slot] < stamps[victim]) {
+                            victim = slot;
+                        }
+                    }
+                }
+            }
+            pages[victim] = page;
+            valid[victim] = true;
+            stamps[victim] = ++clock;
+            dirty[victim] = isDirty;
+        }
+
+        /**
+         * @return True if the page was cached.
+         */
+        boolean invalidate(long page) {
+            int first = firstSlot(page);
+            for (int slot = first; slot < first + ways; slot++) {
+                if (valid[slot] && pages[slot] == page) {
+                    valid[slot] = false;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void clean(long page) {
+            int first = firstSlot(page);
+            for (int slot = first; slot < first + ways; slot++) {
+                if (valid[slot] && pages[slot] == page) {
+                    dirty[slot] = false;
+                }
+            }
+        }
+    }
+}
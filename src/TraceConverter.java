@@ -0,0 +1,179 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * One-time converter from any trace (text, binary, delta, or gzip-compressed
+ *      text or delta) to the binary trace format read by BinaryTraceReader,
+ *      or with -d to the streamable delta format read by DeltaTraceReader;
+ *      -z also gzips the delta trace.
+ *
+ *      java TraceConverter [-p &lt;pagesize&gt;] [-d] [-z] &lt;tracefile&gt; &lt;outfile&gt;
+ */
+
+public class TraceConverter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public static void main(String[] args) {
+        long pageSize = 1;
+        boolean delta = false, gzip = false;
+        String in = null, out = null;
+
+        try {
+            for (int i=0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-p": // page size the stored page numbers are in
+                        pageSize = PageMapper.parseSize(args[++i]);
+                        break;
+
+                    case "-d": // delta + varint format
+                        delta = true;
+                        break;
+
+                    case "-z": // gzip-compressed delta format
+                        delta = true;
+                        gzip = true;
+                        break;
+
+                    default:
+                        if (in == null) {
+                            in = args[i];
+                        } else {
+                            out = args[i];
+                        }
+                }
+            }
+            if (in == null || out == null) {
+                throw new IllegalArgumentException("Missing trace file");
+            }
+
+            long references = delta ? convertDelta(in, out, pageSize, gzip) : convert(in, out, pageSize);
+            System.out.println(String.format("Wrote %d references to %s", references, out));
+
+        } catch (IOException | RuntimeException e) {
+            System.out.println(e.getMessage());
+            System.out.println("\n\njava TraceConverter [-p <pagesize>] [-d] [-z] <tracefile> <outfile>\n");
+        }
+    }
+
+
+    /**
+     * Converts a trace into a binary trace.
+     *
+     * @param in The trace to read, in any format.
+     * @param out The binary trace to create (overwritten if it exists).
+     * @param pageSize Page size in bytes; addresses are divided by it. Must be a power of two.
+     * @return The number of references written.
+     * @throws IOException If either file cannot be read or written, or a page
+     *      number needs all 64 bits (a record keeps one for the write flag).
+     */
+    public static long convert(String in, String out, long pageSize) throws IOException {
+        long references = 0;
+        try (TraceSource reader = TraceSource.open(in, PageMapper.of(pageSize));
+             FileChannel channel = FileChannel.open(Paths.get(out), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+            // header; the reference count is filled in once it is known
+            buffer.putInt(BinaryTraceReader.MAGIC);
+            buffer.putInt(BinaryTraceReader.VERSION);
+            buffer.putLong(pageSize);
+            buffer.putLong(0);
+
+            while (reader.next()) {
+                if (!buffer.hasRemaining()) {
+                    drain(channel, buffer);
+                }
+
+                long page = reader.getAddress();
+                if ((page >>> 63) != 0) {       // no room left for the write flag
+                    throw new IOException(String.format("Page %x (trace line %d) is too large for the binary format",
+                            page, references + 1));
+                }
+                buffer.putLong((page << 1) | (reader.isWrite() ? 1 : 0));
+                references++;
+            }
+            drain(channel, buffer);
+
+            // go back and record the final reference count
+            buffer.putLong(references);
+            buffer.flip();
+            channel.write(buffer, BinaryTraceReader.HEADER_SIZE - 8);
+        }
+
+        return references;
+    }
+
+
+    /**
+     * Converts a trace into a delta trace.
+     *
+     * @param in The trace to read, in any format.
+     * @param out The delta trace to create (overwritten if it exists).
+     * @param pageSize Page size in bytes; addresses are divided by it. Must be a power of two.
+     * @param gzip True to gzip the delta trace as it is written.
+     * @return The number of references written.
+     * @throws IOException If either file cannot be read or written, or two
+     *      consecutive pages are too far apart to encode.
+     */
+    public static long convertDelta(String in, String out, long pageSize, boolean gzip) throws IOException {
+        long references = 0;
+        try (TraceSource reader = TraceSource.open(in, PageMapper.of(pageSize));
+             WritableByteChannel channel = gzip
+                     ? Channels.newChannel(new GZIPOutputStream(new FileOutputStream(out), BUFFER_SIZE))
+                     : FileChannel.open(Paths.get(out), StandardOpenOption.CREATE,
+                             StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(DeltaTraceReader.MAGIC);
+            buffer.putInt(DeltaTraceReader.VERSION);
+            buffer.putLong(pageSize);
+
+            long previous = 0;
+            while (reader.next()) {
+                if (buffer.remaining() < 10) {
+                    drain(channel, buffer);
+                }
+
+                long delta = reader.getAddress() - previous;
+                long zigzag = (delta << 1) ^ (delta >> 63);
+                if ((zigzag >>> 62) != 0) {     // no room left for the write flag
+                    throw new IOException(String.format("Reference %d is too far from the one before it for the delta format",
+                            references + 1));
+                }
+                long value = (zigzag << 1) | (reader.isWrite() ? 1 : 0);
+                while ((value & ~0x7FL) != 0) {
+                    buffer.put((byte) ((value & 0x7F) | 0x80));
+                    value >>>= 7;
+                }
+                buffer.put((byte) value);
+
+                previous = reader.getAddress();
+                references++;
+            }
+            drain(channel, buffer);
+        }
+
+        return references;
+    }
+
+    private static void drain(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
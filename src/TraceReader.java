@@ -0,0 +1,150 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Streams a text trace file of "&lt;hex address&gt; &lt;R|W&gt;" lines. Bytes are
+ *      pulled from a channel (the file, or a decompressing stream) into one
+ *      reusable direct buffer and decoded in place, so reading a reference
+ *      never allocates.
+ */
+
+public class TraceReader implements TraceSource {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    private long address;
+    private boolean write;
+    private long lineNumber;
+
+    public TraceReader(String traceFile) throws IOException {
+        this(FileChannel.open(Paths.get(traceFile), StandardOpenOption.READ));
+    }
+
+    /**
+     * @param channel The trace text, from its start; closed with this reader.
+     */
+    public TraceReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.flip();  // start out empty so the first read fills it
+
+        address = 0;
+        write = false;
+        lineNumber = 0;
+    }
+
+
+    /**
+     * Returns the next byte of the trace, refilling the buffer as needed.
+     *
+     * @return The next byte (0-255), or -1 at the end of the file.
+     */
+    private int nextByte() throws IOException {
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            buffer.flip();
+
+            if (read < 0) {
+                return -1;
+            }
+        }
+
+        return buffer.get() & 0xFF;
+    }
+
+
+    /**
+     * Decodes the next reference in the trace. Blank lines are skipped.
+     *
+     * @return True if a reference was read; false at the end of the trace.
+     * @throws IOException If the trace cannot be read or a line is malformed.
+     */
+    @Override
+    public boolean next() throws IOException {
+        int b = nextByte();
+
+        // skip blank lines and leading whitespace
+        while (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+            if (b == '\n') { lineNumber++; }
+            b = nextByte();
+        }
+        if (b == -1) {
+            return false;
+        }
+
+        // hex address
+        long value = 0;
+        int digits = 0;
+        int digit;
+        while ((digit = Character.digit(b, 16)) >= 0) {
+            value = (value << 4) | digit;
+            digits++;
+            b = nextByte();
+        }
+        if (digits == 0 || (b != ' ' && b != '\t')) {
+            throw malformed();
+        }
+
+        // read/write flag
+        while (b == ' ' || b == '\t') {
+            b = nextByte();
+        }
+        if (b == 'R' || b == 'r') {
+            write = false;
+        } else if (b == 'W' || b == 'w') {
+            write = true;
+        } else {
+            throw malformed();
+        }
+
+        // ignore anything else on the line
+        while (b != '\n' && b != -1) {
+            b = nextByte();
+        }
+        lineNumber++;
+
+        address = value;
+        return true;
+    }
+
+    private IOException malformed() {
+        return new IOException(String.format("Malformed trace line %d", lineNumber + 1));
+    }
+
+
+    /**
+     * @return The address decoded by the last successful call to next().
+     */
+    @Override
+    public long getAddress() {
+        return this.address;
+    }
+
+    /**
+     * @return True if the last decoded reference was a write; otherwise false.
+     */
+    @Override
+    public boolean isWrite() {
+        return this.write;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
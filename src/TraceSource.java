@@ -0,0 +1,152 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.zip.GZIPInputStream;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * A sequential stream of memory references decoded from a trace file.
+ */
+
+public interface TraceSource extends Closeable {
+
+    /**
+     * Decodes the next reference in the trace.
+     *
+     * @return True if a reference was read; false at the end of the trace.
+     * @throws IOException If the trace cannot be read or is malformed.
+     */
+    boolean next() throws IOException;
+
+    /**
+     * @return The page number decoded by the last successful call to next().
+     */
+    long getAddress();
+
+    /**
+     * @return True if the last decoded reference was a write; otherwise false.
+     */
+    boolean isWrite();
+
+    /**
+     * Decodes up to a whole batch of references into the given arrays.
+     *
+     * @param addresses Receives the page numbers, from index 0.
+     * @param writes Receives the write flags, from index 0.
+     * @return The number of references decoded; 0 only at the end of the trace.
+     * @throws IOException If the trace cannot be read or is malformed.
+     */
+    default int next(long[] addresses, boolean[] writes) throws IOException {
+        int length = 0;
+        while (length < addresses.length && next()) {
+            addresses[length] = getAddress();
+            writes[length] = isWrite();
+            length++;
+        }
+        return length;
+    }
+
+
+    /**
+     * @return The page size, in bytes, that the decoded numbers are in; 1 for
+     *      byte addresses. For a mixed page mapping this is the base page size,
+     *      and numbers tagged PageMapper.HUGE are in huge pages.
+     */
+    default long getPageSize() {
+        return 1;
+    }
+
+
+    /**
+     * Opens the given trace file, picking the binary, delta or text decoder
+     *      depending on the header the file starts with. A gzip-compressed
+     *      text or delta trace is decompressed as it is read.
+     *
+     * @param traceFile The path of the trace to open.
+     * @return A TraceSource positioned before the first reference.
+     * @throws IOException If the trace cannot be opened.
+     */
+    static TraceSource open(String traceFile) throws IOException {
+        if (isCompressed(traceFile)) {
+            InputStream in = new BufferedInputStream(
+                    new GZIPInputStream(new FileInputStream(traceFile), 1 << 16), 1 << 16);
+            in.mark(4);
+            int magic = readMagic(in);
+            in.reset();
+
+            if (magic == BinaryTraceReader.MAGIC) {
+                in.close();
+                throw new IOException(traceFile + " is a compressed binary trace; convert it with -d to stream it");
+            }
+            if (magic == DeltaTraceReader.MAGIC) {
+                return new DeltaTraceReader(Channels.newChannel(in));
+            }
+            return new TraceReader(Channels.newChannel(in));
+        }
+
+        int magic;
+        try (InputStream in = new FileInputStream(traceFile)) {
+            magic = readMagic(in);
+        }
+
+        if (magic == BinaryTraceReader.MAGIC) {
+            return new BinaryTraceReader(traceFile);
+        }
+        if (magic == DeltaTraceReader.MAGIC) {
+            return new DeltaTraceReader(traceFile);
+        }
+        return new TraceReader(traceFile);
+    }
+
+
+    /**
+     * @param traceFile The path of the trace to check.
+     * @return True if the file starts with the gzip signature (1f 8b).
+     * @throws IOException If the file cannot be read.
+     */
+    static boolean isCompressed(String traceFile) throws IOException {
+        try (InputStream in = new FileInputStream(traceFile)) {
+            return in.read() == 0x1F && in.read() == 0x8B;
+        }
+    }
+
+    /**
+     * @return The first 4 bytes of the stream as a big-endian int; 0 if it is shorter.
+     */
+    private static int readMagic(InputStream in) throws IOException {
+        try {
+            return new DataInputStream(in).readInt();
+        } catch (EOFException ex) {
+            // shorter than a header; can only be a (tiny) text trace
+            return 0;
+        }
+    }
+
+
+    /**
+     * Opens the given trace file and maps every address to a page number
+     *      with the given mapper.
+     *
+     * @param traceFile The path of the trace to open.
+     * @param mapper How addresses become page numbers; NONE leaves them as stored.
+     * @return A TraceSource positioned before the first reference.
+     * @throws IOException If the trace cannot be opened or mapped.
+     */
+    static TraceSource open(String traceFile, PageMapper mapper) throws IOException {
+        TraceSource source = open(traceFile);
+        if (mapper == PageMapper.NONE) {
+            return source;
+        }
+
+        return mapper.wrap(source, source.getPageSize());
+    }
+}
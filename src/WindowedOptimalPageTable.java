@@ -0,0 +1,328 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ *
+ * @author Joe Meszar
+ * CS1550 Fall 2016
+ * VM Simulator: Page Replacement Algorithms
+ *
+ * Streaming version of OPT for traces too large to index. The table reads
+ *      the trace itself, keeping only a sliding window of the next
+ *      {@code window} references. A page's next use is known if it falls
+ *      inside the window; pages not seen in the window are treated as used
+ *      farthest away.
+ *
+ * An eviction is "uncertain" when more than one resident page is missing
+ *      from the window, because the choice between them is made without
+ *      knowing which of them true OPT would pick. When there are none the
+ *      result is exactly OPT; otherwise the page fault count is at most
+ *      that many faults above OPT (each such choice leaves a cache that
+ *      differs from OPT's by one page, which costs at most one extra fault).
+ */
+
+public class WindowedOptimalPageTable implements PageTable {
+    private static final long NEVER = Long.MAX_VALUE;
+
+    FrameStore frames;
+    FrameIndex index;
+    IndexedMaxHeap victims;     // resident frames keyed by next use
+
+    /**
+     * Lookahead window over the trace, held as a ring of window+1 positions.
+     *      ahead[p % size] is the page referenced at position p and link[p % size]
+     *      is the next position of that page within the window, or -1.
+     */
+    private final long[] ahead;
+    private final long[] link;
+
+    /**
+     * Every page in the window maps to an entry holding the first and last
+     *      position it occupies in the window.
+     */
+    private final FrameIndex windowIndex;
+    private final long[] firstPos;
+    private final long[] lastPos;
+    private final int[] freeEntries;
+    private int numFree;
+
+    private TraceSource trace;
+    private long loaded;        // number of trace references read into the window
+
+    private int activeFrames;
+    private long pageFaults;
+    private long diskWrites;
+    private long uncertainEvictions;
+    private long lineNumber;
+    private PageEventListener listener;
+
+    public WindowedOptimalPageTable(int numFrames, String traceFile, int window) {
+        this(numFrames, traceFile, window, PageMapper.NONE);
+    }
+
+    public WindowedOptimalPageTable(int numFrames, String traceFile, int window, PageMapper mapper) {
+        this(numFrames, traceFile, window, mapper, FrameStore.HEAP);
+    }
+
+    /**
+     * @param backend Where the frame store keeps its columns (see FrameStore.create).
+     * @throws UncheckedIOException If the trace cannot be opened; read errors
+     *      later on are thrown the same way from read and write.
+     */
+    public WindowedOptimalPageTable(int numFrames, String traceFile, int window, PageMapper mapper, String backend) {
+        frames = FrameStore.create(numFrames, backend);
+        index = new FrameIndex(numFrames);
+        victims = new IndexedMaxHeap(numFrames);
+
+        ahead = new long[window + 1];
+        link = new long[window + 1];
+        windowIndex = new FrameIndex(window + 1);
+        firstPos = new long[window + 1];
+        lastPos = new long[window + 1];
+        freeEntries = new int[window + 1];
+        for (int i = 0; i <= window; i++) {
+            freeEntries[i] = window - i;
+        }
+        numFree = window + 1;
+
+        this.activeFrames = 0;
+        this.pageFaults = 0;
+        this.diskWrites = 0;
+        this.uncertainEvictions = 0;
+        this.lineNumber = 0;
+        this.loaded = 0;
+
+        try {
+            trace = TraceSource.open(traceFile, mapper);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        // position 0 plus a full window after it
+        fill();
+    }
+
+    @Override
+    public long getNumPageFaults() {
+        return this.pageFaults;
+    }
+    @Override
+    public long getNumWritesToDisk() {
+        return this.diskWrites;
+    }
+
+    @Override
+    public void setPageEventListener(PageEventListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return The number of evictions that had to choose between several pages
+     *      not seen in the window. The page fault count is at most this many
+     *      faults above true OPT, and equal to it when this is zero.
+     */
+    public long getNumUncertainEvictions() {
+        return this.uncertainEvictions;
+    }
+
+
+    /**
+     * Reads trace references until the window reaches {@code window} positions
+     *      past the current line, or the trace ends.
+     */
+    private void fill() {
+        if (trace == null) {
+            return;
+        }
+
+        try {
+            while (loaded <= lineNumber + ahead.length - 1) {
+                if (!trace.next()) {
+                    trace.close();
+                    trace = null;
+                    return;
+                }
+                push(loaded++, trace.getAddress());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+
+    /**
+     * Appends the reference at the given position to the end of the window.
+     */
+    private void push(long position, long address) {
+        int slot = (int) (position % ahead.length);
+        ahead[slot] = address;
+        link[slot] = -1;
+
+        int entry = windowIndex.get(address);
+        if (entry == -1) {
+            // first time this page appears in the window
+            entry = freeEntries[--numFree];
+            windowIndex.put(address, entry);
+            firstPos[entry] = position;
+            lastPos[entry] = position;
+            nextUseChanged(address, position);
+        } else {
+            link[(int) (lastPos[entry] % ahead.length)] = position;
+            lastPos[entry] = position;
+        }
+    }
+
+
+    /**
+     * Removes the reference at the given (current) position from the front
+     *      of the window.
+     */
+    private void pop(long position) {
+        int slot = (int) (position % ahead.length);
+        long address = ahead[slot];
+        int entry = windowIndex.get(address);
+
+        if (link[slot] == -1) {
+            // no further use of this page inside the window
+            windowIndex.remove(address);
+            freeEntries[numFree++] = entry;
+            nextUseChanged(address, NEVER);
+        } else {
+            firstPos[entry] = link[slot];
+            nextUseChanged(address, link[slot]);
+        }
+    }
+
+
+    /**
+     * @return The next position of the given page inside the window; otherwise NEVER.
+     */
+    private long nextUse(long address) {
+        int entry = windowIndex.get(address);
+        return (entry == -1) ? NEVER : firstPos[entry];
+    }
+
+    /**
+     * Keeps the victim heap in step when a resident page's next use moves.
+     */
+    private void nextUseChanged(long address, long position) {
+        int frame = index.get(address);
+        if (frame != -1) {
+            victims.put(frame, position);
+        }
+    }
+
+
+    /**
+     * Look for the resident page that will be referenced LATER THAN ALL OTHERS
+     *      within the window (or not at all), evict it, and insert the new frame.
+     */
+    private int replace(long address) {
+        // the window now starts just after this reference
+        if (lineNumber < loaded) {
+            pop(lineNumber);
+        }
+
+        // first search if this frame exists already
+        int frameLocation = search(address);
+
+        if ((frameLocation == -1) && (activeFrames < frames.size())) {
+            // still have open frames to use; add this new frame
+            frameLocation = activeFrames;
+            activeFrames++;
+            pageFaults++;
+
+            frames.setAddress(frameLocation, address);
+            index.put(address, frameLocation);
+
+        } else if (frameLocation == -1) {
+            // evict the page used farthest away
+            frameLocation = victims.peek();
+            pageFaults++;
+
+            // several resident pages were never seen in the window; unless the
+            //      window already reaches the end of the trace, OPT might have
+            //      chosen a different one of them
+            if (victims.getKey(frameLocation) == NEVER && victims.secondKey() == NEVER
+                    && trace != null) {
+                uncertainEvictions++;
+            }
+
+            if (frames.isDirty(frameLocation)) {
+                diskWrites++;
+            }
+            if (listener != null) {
+                listener.pageEvicted(frames.getAddress(frameLocation), frames.isDirty(frameLocation));
+            }
+
+            index.remove(frames.getAddress(frameLocation));
+            index.put(address, frameLocation);
+            frames.setAddress(frameLocation, address);
+            frames.isDirty(frameLocation, false);
+        }
+
+        victims.put(frameLocation, nextUse(address));
+
+        // slide the window forward by one reference
+        lineNumber++;
+        fill();
+
+        return frameLocation;
+    }
+
+
+    /**
+     * Looks up the given address in the frame index and returns its location if found.
+     *
+     * @param address The memory address to search for.
+     * @return The location of the referenced memory address in RAM; otherwise -1.
+     */
+    private int search(long address) {
+        return index.get(address);
+    }
+
+
+    /**
+     * Loads (or keeps) the given page as referenced.
+     *
+     * @param address The new/existing page frame address to update as referenced.
+     */
+    @Override
+    public void read(long address) {
+        reference(address, false);
+    }
+
+
+    /**
+     * Loads (or keeps) the given page and marks it dirty.
+     *
+     * @param address The new/existing page frame name to update as dirty.
+     */
+    @Override
+    public void write(long address) {
+        reference(address, true);
+    }
+
+    @Override
+    public void access(long[] pages, boolean[] writes, int length) {
+        for (int i = 0; i < length; i++) {
+            reference(pages[i], writes[i]);
+        }
+    }
+
+    /**
+     * Loads (or keeps) the given page, marking it dirty for a write.
+     */
+    private void reference(long address, boolean isDirty) {
+        int frameLocation = replace(address);
+        if (isDirty) {
+            frames.isDirty(frameLocation, true);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FRAMES: %s\nACTIVE: %d\nPAGE FAULTS: %d\nDISK WRITES: %d\nUNCERTAIN EVICTIONS: %d",
+                frames, this.activeFrames, this.pageFaults, this.diskWrites, this.uncertainEvictions);
+    }
+}
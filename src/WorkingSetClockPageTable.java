@@ -1,78 +1,127 @@
-
-import java.util.Arrays;
-
 /**
  *
  * @author Joe Meszar
  * CS1550 Fall 2016
  * VM Simulator: Page Replacement Algorithms
  * 
+ * The clock hand persists between faults and only moves forward. On a fault
+ *      it clears referenced bits as it passes, evicts the first clean page
+ *      older than tau, and schedules write-backs of old dirty pages, at most
+ *      maxWritesPerSweep per fault. Pages it skips were either referenced
+ *      (paid for by that reference), referenced within the last tau references,
+ *      or are one of the bounded scheduled writes, so a fault costs amortized
+ *      O(tau + maxWritesPerSweep) no matter how many frames there are.
  */
-public class WorkingSetClockPageTable {
+public class WorkingSetClockPageTable implements PageTable {
+    /**
+     * Write-backs scheduled per fault unless another limit is given.
+     */
+    public static final int DEFAULT_MAX_WRITES_PER_SWEEP = 16;
 
-    WorkingSetClockPageFrame[] frames;
+    FrameStore frames;
+    FrameIndex index;
     private final int refresh;  // holds the refresh rate
     private int interrupt;      // holds current clock interrupt time
     private long virtualTime;   // holds the virtual time counter
+    private long lastInterrupt; // virtual time of the last clock interrupt
     private long tau;
+    private final int maxWritesPerSweep;
     
-    private int oldestFrame;
+    private int hand;
     private int activeFrames;
-    private int pageFaults;
-    private int diskWrites;
+    private long pageFaults;
+    private long diskWrites;
+    private PageEventListener listener;
     
     public WorkingSetClockPageTable(int numFrames, int refresh, long tau) {
-        frames = new WorkingSetClockPageFrame[numFrames];
-        for (int i=0; i < numFrames; i++) {
-            frames[i] = new WorkingSetClockPageFrame(0);
+        this(numFrames, refresh, tau, DEFAULT_MAX_WRITES_PER_SWEEP);
+    }
+    
+    /**
+     * @param numFrames The number of page frames in RAM.
+     * @param refresh The number of references between clock interrupts.
+     * @param tau The working set window, in references.
+     * @param maxWritesPerSweep The most write-backs one fault may schedule (at least 1).
+     */
+    public WorkingSetClockPageTable(int numFrames, int refresh, long tau, int maxWritesPerSweep) {
+        this(numFrames, refresh, tau, maxWritesPerSweep, FrameStore.HEAP);
+    }
+    
+    /**
+     * @param numFrames The number of page frames in RAM.
+     * @param refresh The number of references between clock interrupts.
+     * @param tau The working set window, in references.
+     * @param maxWritesPerSweep The most write-backs one fault may schedule (at least 1).
+     * @param backend Where the frame store keeps its columns (see FrameStore.create).
+     */
+    public WorkingSetClockPageTable(int numFrames, int refresh, long tau, int maxWritesPerSweep, String backend) {
+        if (maxWritesPerSweep < 1) {
+            throw new IllegalArgumentException("At least one write-back per sweep is required");
         }
+        frames = FrameStore.create(numFrames, backend);
+        index = new FrameIndex(numFrames);
         
         this.refresh = refresh;     // refresh rate (clock cycles)
         this.interrupt = 0;         // zero-based countdown
         this.virtualTime = 0;       // counter for virtual time
+        this.lastInterrupt = 0;
         this.tau = tau;
+        this.maxWritesPerSweep = maxWritesPerSweep;
         
         this.activeFrames = 0;
         this.pageFaults = 0;
         this.diskWrites = 0;
-        this.oldestFrame = 0;
+        this.hand = 0;
     }
     
-    public int getNumPageFaults() {
+    @Override
+    public long getNumPageFaults() {
         return this.pageFaults;
     }
-    public int getNumWritesToDisk() {
+    @Override
+    public long getNumWritesToDisk() {
         return this.diskWrites;
     }
+    @Override
+    public void setPageEventListener(PageEventListener listener) {
+        this.listener = listener;
+    }
     
     /**
-     * Counts down from the refresh rate to zero. At zero, cleanup is performed
-     *      to remove all pages that have been 
+     * Counts down from the refresh rate to zero. At zero, every page's
+     *      referenced bit is cleared. Rather than visiting each frame, the
+     *      interrupt time is recorded: a referenced bit only counts if it was set
+     *      after the last interrupt (see isReferenced).
      */
     private void countdown() {
         interrupt = (interrupt+1) % refresh;
         
         if (interrupt == 0) {
-            // set all active frames' Referenced bit back to 0
-            for (int i=0; i < activeFrames; i++) {
-                frames[i].isReferenced(false);
-            }
+            lastInterrupt = virtualTime;
         }
     }
+    
+    
+    /**
+     * @param frame The frame to check.
+     * @return True if the frame was referenced since the hand or the last interrupt cleared it.
+     */
+    private boolean isReferenced(int frame) {
+        return frames.isReferenced(frame) && frames.getLastUsed(frame) > lastInterrupt;
+    }
    
     
     /**
-     * Using the aging counter bits, look for the Least Recently Used one, 
-     *      evict it, and insert the new frame.
+     * Inserts the page, evicting with the WSClock hand if no frame is free.
      */
-    private int replace(String address) {
+    private int replace(long address) {
         // increase the virtual clock time
         virtualTime++;
         
         // first search if this frame exists already
         int frameLocation = search(address);
         
-        if ((frameLocation == -1) && (activeFrames < frames.length)) {
+        if ((frameLocation == -1) && (activeFrames < frames.size())) {
             // still have open frames to use
             frameLocation = activeFrames;   // frame to use is this empty one
             activeFrames++;                 // active frames goes up
@@ -86,62 +135,16 @@ public class WorkingSetClockPageTable {
             pageFaults++;
             
             // no open frames left, must evict/replace
-            boolean keepLooking = true;
-            int curFrame = oldestFrame;     // start from the oldest
-            int j=0;                        // loop through entire frame size
-            
-            while ((j < frames.length) && keepLooking) {
-                // check reference bit
-                if ((frames[curFrame].isReferenced() == false)
-                        && (frames[curFrame].isDirty() == false)) {
-                    
-                    // unreferenced and clean; evict it
-                    updatePageFrame(curFrame, address);
-                    keepLooking = false;
-                    
-                    frameLocation = curFrame;
-                    
-                } else if ((frames[curFrame].isReferenced() == false) 
-                        && ((virtualTime - frames[curFrame].getLastUsed()) < tau)
-                        && (frames[curFrame].isDirty())) {
-                    
-                    // unreferenced; older than tau; dirty
-                    // write to disk and mark as clean
-                    diskWrites++;
-                    frames[curFrame].isDirty(false);
-                    
-                    // ensure that this frame location will be looked at again
-                    //      since it now meets the unreferenced, non-dirty requirements
-                    //      needed to evict and replace.
-                    j = 0;
-                    
-                } else {
-                    j++; // increase count
-                }
-                
-                curFrame = (curFrame+1) % frames.length;  // "wrap" around
+            frameLocation = sweep();
+            if (listener != null) {
+                listener.pageEvicted(frames.getAddress(frameLocation), frames.isDirty(frameLocation));
             }
-            
-            // special case where all frames are currently being
-            //      referenced, so evict the OLDEST
-            if (keepLooking) {
-                if (frames[oldestFrame].isDirty()) {
-                    diskWrites++;
-                }
-                
-                // evict and insert new page frame
-                updatePageFrame(oldestFrame, address);
-                
-                // update the frame location used
-                frameLocation = oldestFrame;
+            if (frames.isDirty(frameLocation)) {
+                diskWrites++;
+                frames.isDirty(frameLocation, false);
             }
+            updatePageFrame(frameLocation, address);
             
-            // update the oldest frame pointer
-            for (int i=0; i < frames.length; i++) {
-                if (frames[i].getLastUsed() < frames[oldestFrame].getLastUsed()) {
-                    oldestFrame = i;
-                }
-            }
         } else if (frameLocation >= 0) {
             // frame already exists. update referenced bit and age
             updatePageFrame(frameLocation, address);
@@ -151,34 +154,92 @@ public class WorkingSetClockPageTable {
     }
     
     
+    /**
+     * Advances the hand until it finds a victim:
+     *      referenced                  clear the bit and move on
+     *      within tau                  part of the working set; move on
+     *      older than tau, clean       evict it
+     *      older than tau, dirty       schedule a write-back (it is clean
+     *                                  afterwards) and move on
+     * 
+     *      Once maxWritesPerSweep writes are scheduled, the next old dirty page
+     *      ends the sweep, as does a full revolution. Either way the first
+     *      scheduled page is evicted if there is one, otherwise the least
+     *      recently used page the hand passed.
+     * 
+     * @return The frame to evict.
+     */
+    private int sweep() {
+        int scheduled = -1;     // first page written back during this sweep
+        int writes = 0;
+        int oldest = hand;
+        
+        for (int scanned = 0; scanned < frames.size(); scanned++) {
+            int curFrame = hand;
+            hand = (hand+1) % frames.size();  // "wrap" around
+            
+            if (isReferenced(curFrame)) {
+                frames.isReferenced(curFrame, false);
+                
+            } else if (virtualTime - frames.getLastUsed(curFrame) > tau) {
+                if (!frames.isDirty(curFrame)) {
+                    return curFrame;    // unreferenced, old and clean
+                }
+                if (writes == maxWritesPerSweep) {
+                    hand = curFrame;    // write-back budget spent; resume here next fault
+                    break;
+                }
+                
+                // write to disk and mark as clean
+                diskWrites++;
+                frames.isDirty(curFrame, false);
+                if (listener != null) {
+                    listener.pageCleaned(frames.getAddress(curFrame));
+                }
+                writes++;
+                if (scheduled == -1) {
+                    scheduled = curFrame;
+                }
+            }
+            
+            if (frames.getLastUsed(curFrame) < frames.getLastUsed(oldest)) {
+                oldest = curFrame;
+            }
+        }
+        
+        return (scheduled != -1) ? scheduled : oldest;
+    }
+    
+    
     /**
      * Mimics the updating of a page frame.
      * 
      * @param frame The frame number to update.
      * @param address The new address to store in this frame.
      */
-    private void updatePageFrame(int frame, String address) {
-        frames[frame].setAddress(address);
-        frames[frame].isReferenced(true);
-        frames[frame].setLastUsed(virtualTime);
+    private void updatePageFrame(int frame, long address) {
+        if (frames.isEmpty(frame)) {
+            index.put(address, frame);
+        } else if (frames.getAddress(frame) != address) {
+            // frame is being reloaded; keep the frame index in step
+            index.remove(frames.getAddress(frame));
+            index.put(address, frame);
+        }
+        
+        frames.setAddress(frame, address);
+        frames.isReferenced(frame, true);
+        frames.setLastUsed(frame, virtualTime);
     }
     
     
     /**
-     * Searches the RAM array for the given address and returns its location if found.
+     * Looks up the given address in the frame index and returns its location if found.
      * 
      * @param address The memory address to search for.
      * @return The location of the referenced memory address in RAM; otherwise -1.
      */
-    private int search(String address) {
-        int frameLocation = -1;
-        for (int i=0; i<activeFrames; i++) {
-            if (frames[i].equalsAddress(address)) {
-                frameLocation = i;
-            }
-        }
-        
-        return frameLocation;
+    private int search(long address) {
+        return index.get(address);
     }
     
     
@@ -189,9 +250,9 @@ public class WorkingSetClockPageTable {
      * 
      * @param address The new/existing page frame address to update as referenced.
      */
-    public void read(String address) {
-        replace(address);   // insert / update / replace frame
-        countdown();                            // one refresh frame has occurred
+    @Override
+    public void read(long address) {
+        reference(address, false);
     }
 
     
@@ -206,15 +267,33 @@ public class WorkingSetClockPageTable {
      *      
      * @param address The new/existing page frame name to update as dirty.
      */
-    public void write(String address) {
+    @Override
+    public void write(long address) {
+        reference(address, true);
+    }
+    
+    @Override
+    public void access(long[] pages, boolean[] writes, int length) {
+        for (int i = 0; i < length; i++) {
+            reference(pages[i], writes[i]);
+        }
+    }
+    
+    /**
+     * Loads (or keeps) the given page, marks it dirty for a write, then
+     *      advances the clock interrupt countdown.
+     */
+    private void reference(long address, boolean isDirty) {
         int frameLocation = replace(address);   // insert / update / replace frame
-        frames[frameLocation].isDirty(true);    // mark dirty because this is a write
+        if (isDirty) {
+            frames.isDirty(frameLocation, true);    // mark dirty because this is a write
+        }
         countdown();                            // one refresh frame has occurred
     }
     
     @Override
     public String toString() {
         return String.format("FRAMES: %s\nACTIVE: %d\nPAGE FAULTS: %d\nDISK WRITES: %d", 
-                Arrays.toString(frames), this.activeFrames, this.pageFaults, this.diskWrites);
+                frames, this.activeFrames, this.pageFaults, this.diskWrites);
     }
 }
\ No newline at end of file
@@ -1,8 +1,9 @@
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  *
@@ -16,105 +17,131 @@ public class vmsim {
     static int numFrames = -1;
     static int refresh = -1;
     static int tau = -1;
-    static int memAccesses = 0;
+    static int window = -1;
+    static int counterBits = AgingPageTable.DEFAULT_COUNTER_BITS;
+    static int cleanerCapacity = -1, cleanerBatch = 16, cleanerInterval = 100;
+    static DeviceProfile device = null;
+    static long pageSize = -1, hugePageSize = -1;
+    static int hugeThreshold = -1;
+    static PageMapper mapper = PageMapper.NONE;
+    static TlbPageTable.Config tlb = null;
+    static boolean tlbFilter = false;
+    static String walkCache = null;
+    static String backend = FrameStore.HEAP;
+    static boolean pipeline = false;
+    static PipelinedTraceSource pipelined = null;
+    static String curveFile = null;
+    static ParameterSweep.Range frameRange, refreshRange, tauRange;
+    static long memAccesses = 0;
     static String algorithm="", traceFile="";
     
     public static void main(String[] args) {
-        //getCommandLineArgs(args);
-        
-        numFrames = 2;
-        refresh = 3;
-        tau = 2;
-        algorithm = "opt";
-        traceFile = "testTrace.trace";
+        if (args.length > 0) {
+            getCommandLineArgs(args);
+        } else {
+            // no arguments; run the bundled sample trace
+            numFrames = 2;
+            refresh = 3;
+            tau = 2;
+            algorithm = "opt";
+            traceFile = "testTrace.trace";
+        }
         
-        Object RAM;
-
-        ClockPageTable clockRAM = new ClockPageTable(numFrames);
-        AgingPageTable agingRAM = new AgingPageTable(numFrames, refresh);
-        WorkingSetClockPageTable WSClockRAM = new WorkingSetClockPageTable(numFrames, refresh, tau);
-        OptimalPageTable optimalRAM = new OptimalPageTable(numFrames, traceFile);
+        String[] algorithms = algorithm.split(",");
+        try {
+            mapper = createPageMapper();
+        } catch (IOException | RuntimeException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        if (curveFile != null) {
+            writeMissRatioCurves(algorithms);
+            return;
+        }
+        if ((frameRange != null && !frameRange.isSingle())
+                || (refreshRange != null && !refreshRange.isSingle())
+                || (tauRange != null && !tauRange.isSingle())) {
+            runParameterSweep(algorithms);
+            return;
+        }
         
-        String address = null;
-        boolean isRead = true;
+        // one page table per requested algorithm, all fed from a single pass over the trace
+        PageTable[] tables = new PageTable[algorithms.length];
+        for (int i=0; i < algorithms.length; i++) {
+            try {
+                tables[i] = createPageTable(algorithms[i], numFrames);
+            } catch (UncheckedIOException e) {
+                // e.g. opt cannot index the trace
+                System.out.println(e.getCause().getMessage());
+                return;
+            }
+            if (cleanerCapacity > 0) {
+                // write-backs go through an asynchronous cleaner queue
+                tables[i] = new PageCleaner(tables[i], cleanerCapacity, cleanerBatch, cleanerInterval);
+            }
+            if (walkCache != null) {
+                // keep a 4-level radix page table and count page-walk memory references
+                tables[i] = new RadixPageTable(tables[i], walkCache, hugeRadixLevels());
+            }
+            if (tlb != null) {
+                // translate through a TLB first; shot down on eviction
+                tables[i] = new TlbPageTable(tables[i], tlb, tlbFilter);
+            }
+            if (device != null) {
+                // charge faults and write-backs in simulated device time
+                tables[i] = new IoCostModel(tables[i], device);
+            }
+        }
+        Simulator simulator = new Simulator(tables);
         
-        BufferedReader reader = null;
+        TraceSource reader = null;
         try {
-            File file = new File(traceFile);
-            reader = new BufferedReader(new FileReader(file));
-
-            String line;
-            while ((line = reader.readLine()) != null) {
-                memAccesses++;
-                
-                address = line.split(" ")[0];
-                if (line.split(" ")[1].equals("R")) {
-                    switch (algorithm) {
-                        case "aging":   // aging algorithm that approximates LRU with 8bit counter
-                            agingRAM.read(address);
-                            break;
-                        case "clock":   // better implementation of the (FiFo) 2nd chance algorithm
-                            clockRAM.read(address);
-                            break;
-                        case "opt":     // optimal page replacement
-                            optimalRAM.read(address);
-                            break;
-                        case "work":    // working set clock (aging + clock)
-                            WSClockRAM.read(address);
-                            break;
-                    }
-                } else {
-                    switch (algorithm) {
-                        case "aging":   // aging algorithm that approximates LRU with 8bit counter
-                            agingRAM.write(address);
-                            break;
-                        case "clock":   // better implementation of the (FiFo) 2nd chance algorithm
-                            clockRAM.write(address);
-                            break;
-                        case "opt":     // optimal page replacement
-                            optimalRAM.write(address);
-                            break;
-                        case "work":    // working set clock (aging + clock) 
-                            WSClockRAM.write(address);
-                            break;
-                    }
-                }
+            reader = TraceSource.open(traceFile, mapper);
+            if (pipeline || TraceSource.isCompressed(traceFile)) {
+                // decode (and decompress) on a reader thread while this one simulates
+                reader = pipelined = new PipelinedTraceSource(reader);
             }
+            memAccesses = simulator.run(reader);
             
-            System.out.println(String.format("Algorithm:             %s", algorithm));
-            System.out.println(String.format("Number of frames:      %d", numFrames));
-            System.out.println(String.format("Total memory accesses: %d", memAccesses));
-            
-            // print out statistics for the algorithm
-            switch (algorithm) {
-                case "aging":   // aging algorithm that approximates LRU with 8bit counter
-                    System.out.println(String.format("Total page faults:     %d", agingRAM.getNumPageFaults()));
-                    System.out.println(String.format("Total writes to disk:  %d", agingRAM.getNumWritesToDisk()));
-                    break;
-                    
-                case "clock":   // better implementation of the (FiFo) 2nd chance algorithm
-                    System.out.println(String.format("Total page faults:     %d", clockRAM.getNumPageFaults()));
-                    System.out.println(String.format("Total writes to disk:  %d", clockRAM.getNumWritesToDisk()));
-                    break;
-                    
-                case "opt":     // optimal page replacement
-                    System.out.println(String.format("Total page faults:     %d", optimalRAM.getNumPageFaults()));
-                    System.out.println(String.format("Total writes to disk:  %d", optimalRAM.getNumWritesToDisk()));
-                    break;
-                    
-                case "work":    // TBA 
-                    System.out.println(String.format("Total page faults:     %d", WSClockRAM.getNumPageFaults()));
-                    System.out.println(String.format("Total writes to disk:  %d", WSClockRAM.getNumWritesToDisk()));
-                    break;
+            // for comparison, the same run with base pages only
+            PageTable[] baseTables = null;
+            if (mapper.isMixed()) {
+                PageMapper base = mapper;
+                mapper = PageMapper.of(pageSize);
+                baseTables = new PageTable[algorithms.length];
+                for (int i=0; i < algorithms.length; i++) {
+                    baseTables[i] = createPageTable(algorithms[i], numFrames);
+                }
+                try (TraceSource baseReader = TraceSource.open(traceFile, mapper)) {
+                    new Simulator(baseTables).run(baseReader);
+                }
+                mapper = base;
             }
             
+            // print out statistics for each algorithm
+            for (int i=0; i < algorithms.length; i++) {
+                if (i > 0) { System.out.println(); }
+                printStatistics(algorithms[i], tables[i]);
+                if (baseTables != null) {
+                    System.out.println(String.format("Faults, base pages:    %d", baseTables[i].getNumPageFaults()));
+                    System.out.println(String.format("Writes, base pages:    %d", baseTables[i].getNumWritesToDisk()));
+                }
+            }
+            printPageMapping();
+            printPipeline();
 
         } catch (IOException e) {
             e.printStackTrace();
             System.out.println(e.getMessage());
+        } catch (UncheckedIOException e) {
+            // the lookahead of opt failed to read the trace
+            System.out.println(e.getCause().getMessage());
+        } catch (IllegalArgumentException e) {
+            // the trace does not fit the options, e.g. pages too large for -R
+            System.out.println(e.getMessage());
         } finally {
             try {
-                reader.close();
+                if (reader != null) { reader.close(); }
             } catch (IOException e) {
                 e.printStackTrace();
                 System.out.println(e.getMessage());
@@ -122,35 +149,331 @@ public class vmsim {
         }
     }
     
+    
+    /**
+     * Writes fault/write curves for every frame count from 1 to numFrames.
+     *      LRU and OPT are always included since they come from one stack
+     *      pass each; clock, aging and work are swept if requested.
+     */
+    private static void writeMissRatioCurves(String[] algorithms) {
+        try {
+            DecodedTrace trace = DecodedTrace.load(traceFile, mapper);
+            
+            List<String> names = new ArrayList<String>();
+            List<MissRatioCurve> curves = new ArrayList<MissRatioCurve>();
+            names.add("lru");
+            curves.add(MissRatioCurve.lru(trace, numFrames));
+            names.add("opt");
+            curves.add(MissRatioCurve.opt(trace, numFrames));
+            
+            for (String name : algorithms) {
+                if (!name.equals("opt")) {
+                    names.add(name);
+                    curves.add(MissRatioCurve.sweep(trace, numFrames, n -> createPageTable(name, n)));
+                }
+            }
+            
+            MissRatioCurve.writeCsv(curveFile, names.toArray(new String[0]), curves.toArray(new MissRatioCurve[0]));
+            System.out.println(String.format("Wrote curves for 1..%d frames (%s) to %s",
+                    numFrames, String.join(",", names), curveFile));
+            
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println(e.getMessage());
+        }
+    }
+    
+    
+    /**
+     * Runs every combination of the -n, -r and -t ranges for each algorithm
+     *      as fork-join tasks over one decoded trace and prints a CSV table.
+     */
+    private static void runParameterSweep(String[] algorithms) {
+        try {
+            DecodedTrace trace = DecodedTrace.load(traceFile, mapper);
+            
+            ParameterSweep.Range frames = (frameRange != null) ? frameRange : ParameterSweep.Range.parse(String.valueOf(numFrames));
+            ParameterSweep.Range refreshes = (refreshRange != null) ? refreshRange : ParameterSweep.Range.parse(String.valueOf(refresh));
+            ParameterSweep.Range taus = (tauRange != null) ? tauRange : ParameterSweep.Range.parse(String.valueOf(tau));
+            
+            ParameterSweep sweep = new ParameterSweep(trace, Arrays.asList(algorithms).contains("opt")
+                    ? NextUseIndex.open(traceFile, mapper) : null, counterBits, backend);
+            for (String name : algorithms) {
+                sweep.add(name, frames, refreshes, taus);
+            }
+            sweep.run();
+            sweep.print(System.out);
+            
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println(e.getMessage());
+        }
+    }
+    
+    
+    /**
+     * Builds the page table for the given algorithm using the command line settings.
+     * 
+     * @param algorithm One of opt, clock, aging or work.
+     * @param numFrames The number of page frames in RAM.
+     * @return A new, empty page table.
+     */
+    static PageTable createPageTable(String algorithm, int numFrames) {
+        switch (algorithm) {
+            case "aging":   // aging algorithm that approximates LRU with 8bit counter
+                return new AgingPageTable(numFrames, refresh, counterBits, backend);
+                
+            case "clock":   // better implementation of the (FiFo) 2nd chance algorithm
+                return new ClockPageTable(numFrames, backend);
+                
+            case "opt":     // optimal page replacement
+                if (tlb != null && tlbFilter) {
+                    throw new IllegalArgumentException("opt needs every reference; it cannot run behind a filtering TLB");
+                }
+                if (window >= 0) {
+                    // streaming OPT with a bounded lookahead window
+                    return new WindowedOptimalPageTable(numFrames, traceFile, window, mapper, backend);
+                }
+                return new OptimalPageTable(numFrames, traceFile, mapper, backend);
+                
+            case "work":    // working set clock (aging + clock)
+                return new WorkingSetClockPageTable(numFrames, refresh, tau,
+                        WorkingSetClockPageTable.DEFAULT_MAX_WRITES_PER_SWEEP, backend);
+                
+            default:
+                throw new IllegalArgumentException("Invalid algorithm type specified");
+        }
+    }
+    
+    
+    /**
+     * Builds the address to page number mapping from -p and -H: the trace's
+     *      numbers as they are by default, fixed-size pages with -p, and a
+     *      planned mix of base and huge pages with -H.
+     */
+    private static PageMapper createPageMapper() throws IOException {
+        if (hugePageSize > 0) {
+            if (pageSize < 0) {
+                pageSize = 4096;
+            }
+            int threshold = (hugeThreshold > 0) ? hugeThreshold : (int) Math.max(1, hugePageSize / pageSize / 2);
+            return PageMapper.mixed(traceFile, pageSize, hugePageSize, threshold);
+        }
+        if (pageSize > 0) {
+            return PageMapper.of(pageSize);
+        }
+        return PageMapper.NONE;
+    }
+    
+    
+    /**
+     * @return How many radix levels a huge page spans (9 bits of page number each).
+     */
+    private static int hugeRadixLevels() {
+        if (!mapper.isMixed()) {
+            return 1;
+        }
+        int bits = Long.numberOfTrailingZeros(mapper.getHugePageSize() / mapper.getPageSize());
+        if (bits % RadixPageTable.BITS != 0) {
+            throw new IllegalArgumentException("Huge pages must be 512, 512^2 or 512^3 base pages for the radix page table");
+        }
+        return bits / RadixPageTable.BITS;
+    }
+    
+    
+    /**
+     * Prints how fast each pipeline stage ran on its own; the stage that
+     *      waited least on the other is the bottleneck.
+     */
+    private static void printPipeline() {
+        if (pipelined == null) {
+            return;
+        }
+        long refs = pipelined.getNumReferences();
+        System.out.println();
+        System.out.println(String.format("Reader stage:          %.2f M refs/s busy, waited %d ms for free batches",
+                refs * 1e3 / Math.max(1, pipelined.getReaderBusyNanos()), pipelined.getReaderWaitNanos() / 1000000));
+        System.out.println(String.format("Simulation stage:      %.2f M refs/s busy, waited %d ms for input",
+                refs * 1e3 / Math.max(1, pipelined.getSimulatorBusyNanos()), pipelined.getSimulatorWaitNanos() / 1000000));
+        System.out.println(String.format("Bottleneck:            %s",
+                (pipelined.getSimulatorWaitNanos() > pipelined.getReaderWaitNanos()) ? "reader" : "simulation"));
+    }
+    
+    private static void printPageMapping() {
+        if (mapper == PageMapper.NONE) {
+            return;
+        }
+        System.out.println();
+        System.out.println(String.format("Page size:             %d", mapper.getPageSize()));
+        if (mapper.isMixed()) {
+            System.out.println(String.format("Huge page size:        %d", mapper.getHugePageSize()));
+            System.out.println(String.format("Huge pages:            %d", mapper.getNumHugePages()));
+            System.out.println(String.format("Pages mapped:          %d (%d with base pages only)",
+                    mapper.getNumMappedPages(), mapper.getNumBasePages()));
+        }
+    }
+    
+    
+    private static void printStatistics(String algorithm, PageTable table) {
+        System.out.println(String.format("Algorithm:             %s", algorithm));
+        System.out.println(String.format("Number of frames:      %d", numFrames));
+        System.out.println(String.format("Total memory accesses: %d", memAccesses));
+        System.out.println(String.format("Total page faults:     %d", table.getNumPageFaults()));
+        System.out.println(String.format("Total writes to disk:  %d", table.getNumWritesToDisk()));
+        
+        if (table instanceof IoCostModel) {
+            IoCostModel cost = (IoCostModel) table;
+            System.out.println(String.format("Device:                %s", cost.getDevice()));
+            System.out.println(String.format("Simulated time:        %.3f ms", cost.getElapsedNanos() / 1e6));
+            System.out.println(String.format("Effective access time: %.1f ns", cost.getEffectiveAccessNanos()));
+            System.out.println(String.format("Fault stall (us):      p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f",
+                    cost.getStallPercentile(50) / 1e3, cost.getStallPercentile(90) / 1e3,
+                    cost.getStallPercentile(99) / 1e3, cost.getStallPercentile(99.9) / 1e3, cost.getMaxStall() / 1e3));
+            System.out.println(String.format("Device utilization:    %.1f%%", cost.getDeviceUtilization() * 100));
+            table = cost.getPageTable();
+        }
+        
+        if (table instanceof TlbPageTable) {
+            TlbPageTable tlbTable = (TlbPageTable) table;
+            System.out.println(String.format("TLB:                   %s%s", tlbTable.getConfig(), tlbFilter ? " (filtering)" : ""));
+            System.out.println(String.format("TLB hit rate:          %.2f%%", tlbTable.getHitRate() * 100));
+            for (int level=0; level < tlbTable.getNumLevels(); level++) {
+                System.out.println(String.format("  L%d hits:             %d", level + 1, tlbTable.getNumHits(level)));
+            }
+            System.out.println(String.format("Page walks:            %d (+%d to set dirty bits)",
+                    tlbTable.getNumWalks(), tlbTable.getNumDirtyWalks()));
+            System.out.println(String.format("TLB shootdowns:        %d", tlbTable.getNumShootdowns()));
+            table = tlbTable.getPageTable();
+        }
+        
+        if (table instanceof RadixPageTable) {
+            RadixPageTable radix = (RadixPageTable) table;
+            System.out.println(String.format("Page walks (radix):    %d, %d memory references (%.2f per walk)",
+                    radix.getNumWalks(), radix.getNumMemoryReferences(),
+                    (radix.getNumWalks() == 0) ? 0.0 : (double) radix.getNumMemoryReferences() / radix.getNumWalks()));
+            StringBuilder hits = new StringBuilder();
+            for (int level=0; level < RadixPageTable.LEVELS - 1; level++) {
+                hits.append((level > 0) ? ", " : "").append(radix.getNumWalkCacheHits(level));
+            }
+            System.out.println(String.format("Walk cache hits:       %s (%s, root first)", hits, walkCache));
+            System.out.println(String.format("Page-table nodes:      %d live, %d peak (%d KB)",
+                    radix.getNumLiveNodes(), radix.getPeakNodes(), radix.getPeakNodes() * 4L));
+            table = radix.getPageTable();
+        }
+        
+        if (table instanceof PageCleaner) {
+            PageCleaner cleaner = (PageCleaner) table;
+            System.out.println(String.format("Write-back requests:   %d (%d coalesced)",
+                    cleaner.getNumWriteRequests(), cleaner.getNumCoalescedWrites()));
+            System.out.println(String.format("Write-back batches:    %d of up to %d pages",
+                    cleaner.getNumBatches(), cleanerBatch));
+            System.out.println(String.format("Queue depth:           %.1f mean, %d max of %d",
+                    cleaner.getMeanQueueDepth(), cleaner.getMaxQueueDepth(), cleanerCapacity));
+            System.out.println(String.format("Stalled faults:        %d", cleaner.getNumStalls()));
+            table = cleaner.getPageTable();
+        }
+        
+        if (table instanceof WindowedOptimalPageTable) {
+            System.out.println(String.format("Lookahead window:      %d", window));
+            System.out.println(String.format("Uncertain evictions:   %d (faults are at most this many above OPT)",
+                    ((WindowedOptimalPageTable) table).getNumUncertainEvictions()));
+        }
+    }
+    
     private static void getCommandLineArgs(String[] args) {
         try {
             for (int i=0; i < args.length; i++) {
                 
                 switch (args[i]) {
-                    case "-n": // get number of frames
-                        numFrames = Integer.parseInt(args[i+1]);
-                        break;
-                        
-                    case "-a": // get the algorithm type to use
-                        switch (args[i+1]) {
-                            case "aging":   // aging algorithm that approximates LRU with 8bit counter
-                            case "clock":   // better implementation of the (FiFo) 2nd chance algorithm
-                            case "opt":     // optimal page replacement
-                            case "work":    // TBA 
-                                algorithm = args[i+1];
-                                break;
-                                
-                            default:
-                                throw new Exception("Invalid algorithm type specified");
+                    case "-n": // get number of frames (or lo:hi[:step] range to sweep)
+                        frameRange = ParameterSweep.Range.parse(args[i+1]);
+                        numFrames = frameRange.first();
+                        break;
+                        
+                    case "-a": // get the algorithm type(s) to use, comma separated
+                        if (args[i+1].equals("all")) {
+                            algorithm = "opt,clock,aging,work";
+                            break;
+                        }
+                        for (String name : args[i+1].split(",")) {
+                            switch (name) {
+                                case "aging":   // aging algorithm that approximates LRU with 8bit counter
+                                case "clock":   // better implementation of the (FiFo) 2nd chance algorithm
+                                case "opt":     // optimal page replacement
+                                case "work":    // working set clock (aging + clock)
+                                    break;
+                                    
+                                default:
+                                    throw new Exception("Invalid algorithm type specified");
+                            }
+                        }
+                        algorithm = args[i+1];
+                        break;
+                        
+                    case "-r": // get refresh (aging) (or lo:hi[:step] range to sweep)
+                        refreshRange = ParameterSweep.Range.parse(args[i+1]);
+                        refresh = refreshRange.first();
+                        break;
+                        
+                    case "-t": // get working set clock (or lo:hi[:step] range to sweep)
+                        tauRange = ParameterSweep.Range.parse(args[i+1]);
+                        tau = tauRange.first();
+                        break;
+                        
+                    case "-b": // get aging counter width in bits (1 to 64)
+                        counterBits = Integer.parseInt(args[i+1]);
+                        break;
+                        
+                    case "-q": // get write-back queue capacity[:batch[:interval]] (async cleaner)
+                        String[] cleaner = args[i+1].split(":");
+                        cleanerCapacity = Integer.parseInt(cleaner[0]);
+                        if (cleaner.length > 1) { cleanerBatch = Integer.parseInt(cleaner[1]); }
+                        if (cleaner.length > 2) { cleanerInterval = Integer.parseInt(cleaner[2]); }
+                        break;
+                        
+                    case "-d": // get swap device <hdd|ssd|nvme>[:read_us[:write_us[:queue depth]]] (I/O cost model)
+                        device = DeviceProfile.parse(args[i+1]);
+                        break;
+                        
+                    case "-p": // get page size, e.g. 4K, 2M or 1G (addresses are shifted by its log2)
+                        pageSize = PageMapper.parseSize(args[i+1]);
+                        break;
+                        
+                    case "-H": // get huge page size[:threshold] (mixed base/huge page mode)
+                        String[] huge = args[i+1].split(":");
+                        hugePageSize = PageMapper.parseSize(huge[0]);
+                        if (huge.length > 1) { hugeThreshold = Integer.parseInt(huge[1]); }
+                        break;
+                        
+                    case "-T": // get TLB levels entries:ways[/hugeentries:hugeways][,...][@lru|fifo|random]
+                        tlb = TlbPageTable.Config.parse(args[i+1].equals("default") ? TlbPageTable.Config.DEFAULT : args[i+1]);
+                        break;
+                        
+                    case "-R": // get page-walk cache sizes pml4:pdpt:pd (radix page table)
+                        walkCache = args[i+1].equals("default") ? RadixPageTable.DEFAULT_WALK_CACHE : args[i+1];
+                        break;
+                        
+                    case "-f": // only pass TLB misses on to the page table
+                        tlbFilter = true;
+                        break;
+                        
+                    case "-M": // get frame store <heap|direct|file:dir> (off-heap frame columns)
+                        if (!args[i+1].equals("heap") && !args[i+1].equals("direct") && !args[i+1].startsWith("file:")) {
+                            throw new Exception("Invalid frame store specified");
                         }
+                        backend = args[i+1];
+                        break;
+                        
+                    case "-P": // decode the trace on a separate thread (pipelined)
+                        pipeline = true;
                         break;
                         
-                    case "-r": // get refresh (aging)
-                        refresh = Integer.parseInt(args[i+1]);
+                    case "-w": // get lookahead window (streaming opt)
+                        window = Integer.parseInt(args[i+1]);
                         break;
                         
-                    case "-t": // get working set clock
-                        tau = Integer.parseInt(args[i+1]);
+                    case "-c": // write miss-ratio curves for 1..numframes to a CSV file
+                        curveFile = args[i+1];
                         break;
                         
                     default: // bad input
@@ -159,7 +482,7 @@ public class vmsim {
             }            
         } catch (Exception e) {
             System.out.println(e.getMessage());
-            System.out.println(String.format("\n\njava vmsim –n <numframes> ‐a <opt|clock|aging|work> [‐r <refresh>] [‐t <tau>] <tracefile>\n"));
+            System.out.println(String.format("\n\njava vmsim –n <numframes> ‐a <opt|clock|aging|work>[,...]|all [‐r <refresh>] [‐t <tau>] [-b <counterbits>] [-q <queue>[:<batch>[:<interval>]]] [-d <device>] [-p <pagesize>] [-H <hugesize>[:<threshold>]] [-T <tlb>|default [-f]] [-R <walkcache>|default] [-M <heap|direct|file:<dir>>] [-P] [-w <window>] [-c <curve.csv>] <tracefile>\n"));
         }
     }
 }